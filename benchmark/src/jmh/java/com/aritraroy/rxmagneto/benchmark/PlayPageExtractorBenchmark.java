@@ -0,0 +1,101 @@
+package com.aritraroy.rxmagneto.benchmark;
+
+import com.aritraroy.rxmagneto.domain.PlayField;
+import com.aritraroy.rxmagneto.domain.PlayPackageInfo;
+import com.aritraroy.rxmagneto.extractor.PlayPageExtractor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the extraction of Play Store page fields, run against the page fixtures in
+ * {@code src/jmh/resources/fixtures}. Every field is benchmarked on its own, as extraction stops
+ * as soon as the requested fields are found, along with the full snapshot fetched by
+ * {@code RxMagnetoInternal}. Run them with {@code ./gradlew :benchmark:jmh}, the GC profiler
+ * reports the allocations per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PlayPageExtractorBenchmark {
+
+    private static final String FIELDS_ALL = "ALL";
+    private static final String FIXTURES_DIRECTORY = "/fixtures/";
+    private static final String PACKAGE_NAME = "com.example.app";
+    private static final String PACKAGE_URL =
+            "https://play.google.com/store/apps/details?id=" + PACKAGE_NAME;
+
+    @Param({"details-typical.html", "details-long-changelog.html"})
+    public String fixture;
+
+    @Param({FIELDS_ALL, "VERSION", "DOWNLOADS", "PUBLISHED_DATE", "OS_REQUIREMENTS",
+            "CONTENT_RATING", "APP_RATING", "APP_RATING_COUNT", "CHANGELOG"})
+    public String fields;
+
+    private String page;
+    private Set<PlayField> playFields;
+    private PlayPageExtractor reusedExtractor;
+
+    @Setup
+    public void setUp() throws IOException {
+        page = readFixture(fixture);
+        playFields = FIELDS_ALL.equals(fields)
+                ? EnumSet.allOf(PlayField.class)
+                : EnumSet.of(PlayField.valueOf(fields));
+        reusedExtractor = new PlayPageExtractor(playFields);
+    }
+
+    /**
+     * Extract the fields the way {@code RxMagnetoInternal} does, with a new extractor per page
+     */
+    @Benchmark
+    public PlayPackageInfo extract() throws IOException {
+        PlayPackageInfo.Builder builder = new PlayPackageInfo.Builder(PACKAGE_NAME, PACKAGE_URL);
+        new PlayPageExtractor(playFields).extract(new StringReader(page), builder);
+        return builder.build();
+    }
+
+    /**
+     * Extract the fields reusing the scratch buffers of a single extractor
+     */
+    @Benchmark
+    public PlayPackageInfo extractReused() throws IOException {
+        PlayPackageInfo.Builder builder = new PlayPackageInfo.Builder(PACKAGE_NAME, PACKAGE_URL);
+        reusedExtractor.extract(new StringReader(page), builder);
+        return builder.build();
+    }
+
+    private static String readFixture(String name) throws IOException {
+        InputStream inputStream = PlayPageExtractorBenchmark.class
+                .getResourceAsStream(FIXTURES_DIRECTORY + name);
+        if (inputStream == null) {
+            throw new IOException("Missing fixture " + name);
+        }
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return new String(outputStream.toByteArray(), Charset.forName("UTF-8"));
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -30,5 +30,4 @@
     rx.internal.util.atomic.LinkedQueueNode consumerNode;
 }
 
--dontnote rx.internal.util.PlatformDependent
--keep class org.jsoup.nodes.** {*;}
\ No newline at end of file
+-dontnote rx.internal.util.PlatformDependent
\ No newline at end of file
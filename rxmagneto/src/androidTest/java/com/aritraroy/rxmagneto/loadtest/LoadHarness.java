@@ -0,0 +1,247 @@
+package com.aritraroy.rxmagneto.loadtest;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.res.AssetManager;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.aritraroy.rxmagneto.core.RxMagneto;
+import com.aritraroy.rxmagneto.core.RxMagnetoConfig;
+import com.aritraroy.rxmagneto.exceptions.PackageFetchException;
+import com.aritraroy.rxmagneto.metrics.LatencyHistogram;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.exceptions.CompositeException;
+
+/**
+ * Load harness driving the fetch paths of {@link RxMagneto} against a local
+ * {@link PlayStoreStandInServer} serving the recorded pages of the benchmark module. It reports
+ * the throughput, the tail latencies, the threads used and the peak heap of every scenario to
+ * logcat. Outcomes and latencies are counted per package, including retries and their backoff,
+ * while the no. of attempts and the bytes received are taken from the request metrics. The load
+ * is tuned through instrumentation arguments, e.g.
+ * <pre>
+ * ./gradlew :rxmagneto:connectedAndroidTest \
+ *     -Pandroid.testInstrumentationRunnerArguments.class=com.aritraroy.rxmagneto.loadtest.LoadHarness \
+ *     -Pandroid.testInstrumentationRunnerArguments.packages=1000 \
+ *     -Pandroid.testInstrumentationRunnerArguments.concurrency=32
+ * </pre>
+ * The supported arguments are {@code packages}, {@code concurrency}, {@code latencyMs},
+ * {@code jitterMs}, {@code errorRate} and {@code throttleRate}. The device needs an active
+ * network connection, as RxMagneto checks for one before every request.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LoadHarness {
+
+    private static final String TAG = "RxMagnetoLoadHarness";
+    private static final String FIXTURES_DIRECTORY = "fixtures";
+    private static final String PACKAGE_NAME_PREFIX = "com.example.load.app";
+    private static final long HEAP_SAMPLING_INTERVAL_MILLIS = 10;
+
+    private Bundle arguments;
+    private PlayStoreStandInServer server;
+    private List<String> packageNames;
+    private int concurrency;
+
+    @Before
+    public void setUp() throws IOException {
+        arguments = InstrumentationRegistry.getArguments();
+        PlayStoreStandInServer.Builder builder = new PlayStoreStandInServer.Builder()
+                .setLatency(getLong("latencyMs", 50), getLong("jitterMs", 50))
+                .setErrorRate(getDouble("errorRate", 0.01))
+                .setThrottleRate(getDouble("throttleRate", 0.02));
+        AssetManager assetManager = InstrumentationRegistry.getContext().getAssets();
+        for (String name : assetManager.list(FIXTURES_DIRECTORY)) {
+            builder.addPage(readAsset(assetManager, FIXTURES_DIRECTORY + "/" + name));
+        }
+        server = builder.build();
+        server.start();
+
+        int packageCount = (int) getLong("packages", 500);
+        packageNames = new ArrayList<>(packageCount);
+        for (int i = 0; i < packageCount; i++) {
+            packageNames.add(PACKAGE_NAME_PREFIX + i);
+        }
+        concurrency = (int) getLong("concurrency", 16);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    /**
+     * The batch only reports a package once it is done, so the latency of a package is the time
+     * from the start of the batch until its result arrives
+     */
+    @Test
+    public void grabAllBatch() throws InterruptedException {
+        runScenario("grabAll", rxMagneto -> Flowable.defer(() -> {
+            final long startNanos = System.nanoTime();
+            return rxMagneto.grabAll(packageNames, concurrency)
+                    .map(playPackageInfo -> System.nanoTime() - startNanos);
+        }));
+    }
+
+    @Test
+    public void grabVersionPerPackage() throws InterruptedException {
+        runScenario("grabVersion", rxMagneto -> Flowable.fromIterable(packageNames)
+                .flatMapSingle(packageName -> Single.defer(() -> {
+                    final long startNanos = System.nanoTime();
+                    return rxMagneto.grabVersion(packageName)
+                            .map(version -> System.nanoTime() - startNanos)
+                            .onErrorResumeNext(throwable -> Single.error(
+                                    new PackageFetchException(packageName, throwable)));
+                }), true, concurrency));
+    }
+
+    private void runScenario(String name, Scenario scenario) throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final AtomicLong succeeded = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong attempts = new AtomicLong();
+        final AtomicLong bytesReceived = new AtomicLong();
+        final Set<String> threadNames =
+                Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        RxMagneto rxMagneto = RxMagneto.getInstance();
+        rxMagneto.initialize(InstrumentationRegistry.getTargetContext(),
+                new RxMagnetoConfig.Builder()
+                        .setBaseUrl(server.getBaseUrl())
+                        .setMemoryCacheSize(0)
+                        .setMetricsListener(requestMetrics -> {
+                            if (requestMetrics.isCacheHit()) {
+                                return;
+                            }
+                            attempts.incrementAndGet();
+                            bytesReceived.addAndGet(requestMetrics.getBytesReceived());
+                            threadNames.add(Thread.currentThread().getName());
+                        })
+                        .build());
+
+        ResourceSampler resourceSampler = new ResourceSampler();
+        resourceSampler.start();
+        long startNanos = System.nanoTime();
+        scenario.run(rxMagneto)
+                .doOnNext(latencyNanos -> {
+                    histogram.record(latencyNanos);
+                    succeeded.incrementAndGet();
+                })
+                .doOnError(throwable -> failed.addAndGet(countFailedPackages(throwable)))
+                .ignoreElements()
+                .onErrorComplete()
+                .blockingAwait();
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        resourceSampler.interrupt();
+        resourceSampler.join();
+
+        Log.i(TAG, String.format(Locale.US, "%s: %d packages with concurrency %d in %.2f s, "
+                        + "%.1f packages/s, package p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, "
+                        + "max %.1f ms, %d succeeded, %d failed, %d attempts, %.1f MB received, "
+                        + "%d server requests (%d errors, %d throttled), %d request threads, "
+                        + "%d peak live threads, %.1f MB peak heap",
+                name, packageNames.size(), concurrency, elapsedSeconds,
+                (succeeded.get() + failed.get()) / elapsedSeconds,
+                toMillis(histogram.getPercentileNanos(50)),
+                toMillis(histogram.getPercentileNanos(95)),
+                toMillis(histogram.getPercentileNanos(99)),
+                toMillis(histogram.getMaxNanos()),
+                succeeded.get(), failed.get(), attempts.get(), bytesReceived.get() / 1e6,
+                server.getRequestCount(), server.getErrorCount(), server.getThrottledCount(),
+                threadNames.size(), resourceSampler.peakThreads,
+                resourceSampler.peakHeapBytes / 1e6));
+
+        assertEquals(packageNames.size(), succeeded.get() + failed.get());
+    }
+
+    /**
+     * Count the packages a scenario failed on, which are reported together once it is done
+     */
+    private static int countFailedPackages(Throwable throwable) {
+        if (throwable instanceof CompositeException) {
+            return ((CompositeException) throwable).getExceptions().size();
+        }
+        return throwable instanceof PackageFetchException ? 1 : 0;
+    }
+
+    private long getLong(String key, long defaultValue) {
+        String value = arguments.getString(key);
+        return value != null ? Long.parseLong(value) : defaultValue;
+    }
+
+    private double getDouble(String key, double defaultValue) {
+        String value = arguments.getString(key);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static byte[] readAsset(AssetManager assetManager, String path) throws IOException {
+        InputStream inputStream = assetManager.open(path);
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Fetches every package, emitting the latency of every package fetched and failing with
+     * one {@link PackageFetchException} per failed package once the rest are done
+     */
+    private interface Scenario {
+        Flowable<Long> run(RxMagneto rxMagneto);
+    }
+
+    /**
+     * Samples the heap usage and the no. of live threads while a scenario runs
+     */
+    private static class ResourceSampler extends Thread {
+        private volatile long peakHeapBytes;
+        private volatile int peakThreads;
+
+        @Override
+        public void run() {
+            Runtime runtime = Runtime.getRuntime();
+            while (!isInterrupted()) {
+                peakHeapBytes = Math.max(peakHeapBytes,
+                        runtime.totalMemory() - runtime.freeMemory());
+                peakThreads = Math.max(peakThreads, Thread.activeCount());
+                try {
+                    Thread.sleep(HEAP_SAMPLING_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
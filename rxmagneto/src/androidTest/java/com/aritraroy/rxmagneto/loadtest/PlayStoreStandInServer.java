@@ -0,0 +1,306 @@
+package com.aritraroy.rxmagneto.loadtest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A minimal HTTP/1.1 server on the loopback interface standing in for Play Store. It serves
+ * recorded detail pages for any package, keeps connections alive and answers conditional
+ * requests, and it can inject latency, jitter, server errors and 429 responses.
+ */
+public class PlayStoreStandInServer implements Closeable {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final String DETAILS_PATH = "/store/apps/details?id=";
+    private static final String THREAD_NAME = "StandInServer-";
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private final List<byte[]> pages;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+    private final double throttleRate;
+    private final Random random;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
+
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+
+    private PlayStoreStandInServer(Builder builder) {
+        pages = new ArrayList<>(builder.pages);
+        latencyMillis = builder.latencyMillis;
+        jitterMillis = builder.jitterMillis;
+        errorRate = builder.errorRate;
+        throttleRate = builder.throttleRate;
+        random = new Random(builder.seed);
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(0, 128, InetAddress.getByName("127.0.0.1"));
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, THREAD_NAME + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        });
+    }
+
+    /**
+     * @return The base url to configure RxMagneto with
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort() + DETAILS_PATH;
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            InputStream inputStream = new BufferedInputStream(socket.getInputStream());
+            OutputStream outputStream = new BufferedOutputStream(socket.getOutputStream());
+            boolean keepAlive = true;
+            while (keepAlive) {
+                String requestLine = readLine(inputStream);
+                if (requestLine == null || requestLine.isEmpty()) {
+                    return;
+                }
+
+                String ifNoneMatch = null;
+                String line;
+                while ((line = readLine(inputStream)) != null && !line.isEmpty()) {
+                    int separator = line.indexOf(':');
+                    if (separator <= 0) {
+                        continue;
+                    }
+                    String name = line.substring(0, separator).trim().toLowerCase(Locale.US);
+                    String value = line.substring(separator + 1).trim();
+                    if ("if-none-match".equals(name)) {
+                        ifNoneMatch = value;
+                    } else if ("connection".equals(name) && "close".equalsIgnoreCase(value)) {
+                        keepAlive = false;
+                    }
+                }
+                if (line == null) {
+                    return;
+                }
+
+                requestCount.incrementAndGet();
+                respond(outputStream, requestLine, ifNoneMatch, keepAlive);
+            }
+        } catch (IOException | InterruptedException ignored) {
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void respond(OutputStream outputStream, String requestLine, String ifNoneMatch,
+                         boolean keepAlive) throws IOException, InterruptedException {
+        double chance;
+        long delayMillis;
+        synchronized (random) {
+            chance = random.nextDouble();
+            delayMillis = latencyMillis + (jitterMillis > 0
+                    ? (long) (random.nextDouble() * jitterMillis)
+                    : 0);
+        }
+        if (delayMillis > 0) {
+            Thread.sleep(delayMillis);
+        }
+
+        String[] parts = requestLine.split(" ");
+        boolean isHead = parts.length > 0 && "HEAD".equals(parts[0]);
+        String target = parts.length > 1 ? parts[1] : "";
+
+        if (chance < errorRate) {
+            errorCount.incrementAndGet();
+            writeResponse(outputStream, "500 Internal Server Error", null, new byte[0], isHead,
+                    keepAlive);
+        } else if (chance < errorRate + throttleRate) {
+            throttledCount.incrementAndGet();
+            writeResponse(outputStream, "429 Too Many Requests", "Retry-After: 1\r\n",
+                    new byte[0], isHead, keepAlive);
+        } else if (!target.startsWith(DETAILS_PATH)) {
+            writeResponse(outputStream, "404 Not Found", null, new byte[0], isHead, keepAlive);
+        } else {
+            int pageIndex = (target.hashCode() & Integer.MAX_VALUE) % pages.size();
+            String eTag = "\"page-" + pageIndex + "\"";
+            if (eTag.equals(ifNoneMatch)) {
+                notModifiedCount.incrementAndGet();
+                writeResponse(outputStream, "304 Not Modified", "ETag: " + eTag + "\r\n",
+                        new byte[0], true, keepAlive);
+            } else {
+                writeResponse(outputStream, "200 OK", "ETag: " + eTag + "\r\n"
+                                + "Content-Type: text/html; charset=utf-8\r\n",
+                        pages.get(pageIndex), isHead, keepAlive);
+            }
+        }
+    }
+
+    private static void writeResponse(OutputStream outputStream, String status, String headers,
+                                      byte[] body, boolean omitBody, boolean keepAlive)
+            throws IOException {
+        StringBuilder head = new StringBuilder()
+                .append("HTTP/1.1 ").append(status).append("\r\n")
+                .append("Content-Length: ").append(body.length).append("\r\n")
+                .append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n");
+        if (headers != null) {
+            head.append(headers);
+        }
+        head.append("\r\n");
+        outputStream.write(head.toString().getBytes(ASCII));
+        if (!omitBody) {
+            outputStream.write(body);
+        }
+        outputStream.flush();
+    }
+
+    private static String readLine(InputStream inputStream) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = inputStream.read()) != -1) {
+            if (c == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            if (line.length() >= MAX_LINE_LENGTH) {
+                throw new SocketException("Request line too long");
+            }
+            line.append((char) c);
+        }
+        return line.length() > 0 ? line.toString() : null;
+    }
+
+    public static class Builder {
+        private final List<byte[]> pages = new ArrayList<>();
+        private long latencyMillis;
+        private long jitterMillis;
+        private double errorRate;
+        private double throttleRate;
+        private long seed = 42;
+
+        /**
+         * Add a recorded detail page. Every package is consistently served one of the pages.
+         *
+         * @param page The page bytes encoded in UTF-8
+         * @return The builder
+         */
+        public Builder addPage(byte[] page) {
+            pages.add(page);
+            return this;
+        }
+
+        public Builder setLatency(long latencyMillis, long jitterMillis) {
+            this.latencyMillis = latencyMillis;
+            this.jitterMillis = jitterMillis;
+            return this;
+        }
+
+        /**
+         * @param errorRate The share of requests failing with a 500 response, between 0 and 1
+         * @return The builder
+         */
+        public Builder setErrorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * @param throttleRate The share of requests throttled with a 429 response, between 0
+         *                     and 1
+         * @return The builder
+         */
+        public Builder setThrottleRate(double throttleRate) {
+            this.throttleRate = throttleRate;
+            return this;
+        }
+
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public PlayStoreStandInServer build() {
+            if (pages.isEmpty()) {
+                throw new IllegalStateException("At least one page is needed");
+            }
+            return new PlayStoreStandInServer(this);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.aritraroy.rxmagneto.cache;
+
+import com.aritraroy.rxmagneto.domain.PlayField;
+import com.aritraroy.rxmagneto.domain.PlayPackageInfo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A persistent cache of {@link PlayPackageInfo} snapshots along with the validators of the
+ * response they were parsed from, so that they can be revalidated with a conditional request
+ * instead of downloading the page again. Each package is stored in its own file using a compact
+ * binary format, holding the fields the snapshot contains and every value as length-prefixed
+ * UTF-8, so values of any length are kept. The least recently used files are evicted once the
+ * cache grows beyond its maximum size.
+ */
+public class DiskPlayPackageInfoCache {
+
+    private static final int MAGIC = 0x524d4743;
+    private static final int FORMAT_VERSION = 2;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int NULL_LENGTH = -1;
+    private static final String FILE_EXTENSION = ".bin";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+
+    private final File directory;
+    private final long maxSize;
+
+    public DiskPlayPackageInfoCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Read the stored snapshot of a package. Any unreadable or corrupt file, including one
+     * written in a different format version, is treated as a miss and deleted.
+     *
+     * @param packageName A particular package name
+     * @return The stored {@link Entry} or null if there is none
+     */
+    public synchronized Entry get(String packageName) {
+        File file = getFile(packageName);
+        if (!file.exists()) {
+            return null;
+        }
+
+        DataInputStream inputStream = null;
+        try {
+            inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            Entry entry = readEntry(inputStream, packageName, file.length());
+            file.setLastModified(System.currentTimeMillis());
+            return entry;
+        } catch (IOException e) {
+            file.delete();
+            return null;
+        } finally {
+            closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * Store the snapshot of a package along with its response validators
+     *
+     * @param playPackageInfo The information to store
+     * @param eTag            The value of the ETag header of the response, if any
+     * @param lastModified    The value of the Last-Modified header of the response, if any
+     */
+    public synchronized void put(PlayPackageInfo playPackageInfo, String eTag,
+                                 String lastModified) {
+        if (eTag == null && lastModified == null) {
+            return;
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+
+        File file = getFile(playPackageInfo.getPackageName());
+        File tempFile = new File(directory, file.getName() + TEMP_FILE_EXTENSION);
+        DataOutputStream outputStream = null;
+        try {
+            outputStream = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tempFile)));
+            writeEntry(outputStream, playPackageInfo, eTag, lastModified);
+            outputStream.close();
+            outputStream = null;
+
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                return;
+            }
+        } catch (IOException e) {
+            tempFile.delete();
+            return;
+        } finally {
+            closeQuietly(outputStream);
+        }
+        trimToSize();
+    }
+
+    public synchronized void evictAll() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private void trimToSize() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= maxSize) {
+            return;
+        }
+
+        List<File> sortedFiles = new ArrayList<>(Arrays.asList(files));
+        Collections.sort(sortedFiles, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long difference = first.lastModified() - second.lastModified();
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+        for (int i = 0; i < sortedFiles.size() && size > maxSize; i++) {
+            File file = sortedFiles.get(i);
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private File getFile(String packageName) {
+        return new File(directory, packageName + FILE_EXTENSION);
+    }
+
+    private static void writeEntry(DataOutputStream outputStream, PlayPackageInfo playPackageInfo,
+                                   String eTag, String lastModified) throws IOException {
+        outputStream.writeInt(MAGIC);
+        outputStream.writeInt(FORMAT_VERSION);
+        int fieldMask = 0;
+        for (PlayField field : playPackageInfo.getFields()) {
+            fieldMask |= 1 << field.ordinal();
+        }
+        outputStream.writeInt(fieldMask);
+        writeString(outputStream, eTag);
+        writeString(outputStream, lastModified);
+        writeString(outputStream, playPackageInfo.getPackageUrl());
+        writeString(outputStream, playPackageInfo.getPackageVersion());
+        writeString(outputStream, playPackageInfo.getDownloads());
+        writeString(outputStream, playPackageInfo.getPublishedDate());
+        writeString(outputStream, playPackageInfo.getOsRequirements());
+        writeString(outputStream, playPackageInfo.getContentRating());
+        writeString(outputStream, playPackageInfo.getAppRating());
+        writeString(outputStream, playPackageInfo.getAppRatingCount());
+
+        List<String> changelogArray = playPackageInfo.getChangelogArray();
+        int changelogSize = changelogArray != null ? changelogArray.size() : NULL_LENGTH;
+        outputStream.writeInt(changelogSize);
+        for (int i = 0; i < changelogSize; i++) {
+            writeString(outputStream, changelogArray.get(i));
+        }
+    }
+
+    /**
+     * Read an entry, rejecting any length that cannot fit in the file so a corrupt file never
+     * causes a huge allocation
+     */
+    private static Entry readEntry(DataInputStream inputStream, String packageName,
+                                   long fileLength) throws IOException {
+        if (inputStream.readInt() != MAGIC || inputStream.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported cache file format");
+        }
+
+        int fieldMask = inputStream.readInt();
+        Set<PlayField> fields = EnumSet.noneOf(PlayField.class);
+        for (PlayField field : PlayField.values()) {
+            if ((fieldMask & 1 << field.ordinal()) != 0) {
+                fields.add(field);
+            }
+        }
+        String eTag = readString(inputStream, fileLength);
+        String lastModified = readString(inputStream, fileLength);
+        PlayPackageInfo.Builder builder = new PlayPackageInfo.Builder(packageName,
+                readString(inputStream, fileLength))
+                .setIsUrlValid(true)
+                .setPackageVersion(readString(inputStream, fileLength))
+                .setDownloads(readString(inputStream, fileLength))
+                .setPublishedDate(readString(inputStream, fileLength))
+                .setOsRequirements(readString(inputStream, fileLength))
+                .setContentRating(readString(inputStream, fileLength))
+                .setAppRating(readString(inputStream, fileLength))
+                .setAppRatingCount(readString(inputStream, fileLength))
+                .setFields(fields);
+
+        int changelogSize = readLength(inputStream, fileLength);
+        if (changelogSize != NULL_LENGTH) {
+            List<String> changelogArray = new ArrayList<>(changelogSize);
+            for (int i = 0; i < changelogSize; i++) {
+                changelogArray.add(readString(inputStream, fileLength));
+            }
+            builder.setChangelogArray(changelogArray);
+        }
+        return new Entry(builder.build(), eTag, lastModified);
+    }
+
+    private static void writeString(DataOutputStream outputStream, String value)
+            throws IOException {
+        if (value == null) {
+            outputStream.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        outputStream.writeInt(bytes.length);
+        outputStream.write(bytes);
+    }
+
+    private static String readString(DataInputStream inputStream, long fileLength)
+            throws IOException {
+        int length = readLength(inputStream, fileLength);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        inputStream.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static int readLength(DataInputStream inputStream, long fileLength)
+            throws IOException {
+        int length = inputStream.readInt();
+        if (length < NULL_LENGTH || length > fileLength) {
+            throw new IOException("Corrupt cache file");
+        }
+        return length;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * A snapshot along with the validators of the response it was parsed from
+     */
+    public static class Entry {
+        private final PlayPackageInfo playPackageInfo;
+        private final String eTag;
+        private final String lastModified;
+
+        public Entry(PlayPackageInfo playPackageInfo, String eTag, String lastModified) {
+            this.playPackageInfo = playPackageInfo;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+
+        public PlayPackageInfo getPlayPackageInfo() {
+            return playPackageInfo;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+    }
+}
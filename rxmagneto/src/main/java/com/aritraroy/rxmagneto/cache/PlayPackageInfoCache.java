@@ -0,0 +1,260 @@
+package com.aritraroy.rxmagneto.cache;
+
+import android.content.ComponentCallbacks2;
+
+import com.aritraroy.rxmagneto.core.RxMagnetoConfig;
+import com.aritraroy.rxmagneto.domain.PlayField;
+import com.aritraroy.rxmagneto.domain.PlayPackageInfo;
+import com.aritraroy.rxmagneto.network.NanoClock;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded in-memory LRU cache of parsed {@link PlayPackageInfo} keyed by package name. Entries
+ * are weighted by their estimated size in bytes, so a few packages with long changelogs cannot
+ * crowd out the rest, and each field is considered fresh only for its configured time to live.
+ * Projections holding only some of the fields are merged into the entry of their package, and
+ * every field keeps the time it was fetched at, so an entry can serve the fields that are still
+ * fresh even if others are missing or expired. Expired entries are kept for the configured
+ * staleness window, so that they can still be served while they are being refreshed.
+ */
+public class PlayPackageInfoCache {
+
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int STRING_OVERHEAD = 40;
+    private static final long NOT_FETCHED = Long.MIN_VALUE;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final RxMagnetoConfig config;
+    private final int maxSize;
+    private final NanoClock clock;
+
+    private int size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public PlayPackageInfoCache(RxMagnetoConfig config) {
+        this(config, NanoClock.ELAPSED_REALTIME);
+    }
+
+    PlayPackageInfoCache(RxMagnetoConfig config, NanoClock clock) {
+        this.config = config;
+        this.maxSize = config.getMemoryCacheSize();
+        this.clock = clock;
+    }
+
+    /**
+     * Get the cached information of a package if all the requested fields are still fresh
+     *
+     * @param packageName A particular package name
+     * @param fields      The fields the caller is interested in
+     * @return The cached {@link PlayPackageInfo} or null if it is missing or expired
+     */
+    public synchronized PlayPackageInfo get(String packageName, Set<PlayField> fields) {
+        Entry entry = entries.get(packageName);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+
+        long now = nowMillis();
+        for (PlayField field : fields) {
+            if (!entry.isFresh(field, now, config.getCacheTtl(field))) {
+                missCount++;
+                if (isExpired(entry, now)) {
+                    removeEntry(packageName);
+                }
+                return null;
+            }
+        }
+        hitCount++;
+        return entry.playPackageInfo;
+    }
+
+    /**
+     * Get the cached information of a package that has expired, as long as none of the
+     * requested fields has been expired for longer than the staleness window. Lookups are not
+     * counted, as the preceding {@link #get(String, Set)} has already counted the miss.
+     *
+     * @param packageName A particular package name
+     * @param fields      The fields the caller is interested in
+     * @return The stale {@link PlayPackageInfo} or null if it is missing or too old
+     */
+    public synchronized PlayPackageInfo getStale(String packageName, Set<PlayField> fields) {
+        Entry entry = entries.get(packageName);
+        if (entry == null) {
+            return null;
+        }
+
+        long now = nowMillis();
+        for (PlayField field : fields) {
+            if (!entry.isFresh(field, now,
+                    config.getCacheTtl(field) + config.getMaxStaleness())) {
+                return null;
+            }
+        }
+        return entry.playPackageInfo;
+    }
+
+    /**
+     * Get the part of the cached information of a package that is still fresh. Lookups are not
+     * counted, as the preceding {@link #get(String, Set)} has already counted the miss.
+     *
+     * @param packageName A particular package name
+     * @param fields      The fields the caller is interested in
+     * @return A projection holding the requested fields that are still fresh, or null if none
+     * of them is
+     */
+    public synchronized PlayPackageInfo getFresh(String packageName, Set<PlayField> fields) {
+        Entry entry = entries.get(packageName);
+        if (entry == null) {
+            return null;
+        }
+
+        long now = nowMillis();
+        Set<PlayField> freshFields = EnumSet.noneOf(PlayField.class);
+        for (PlayField field : fields) {
+            if (entry.isFresh(field, now, config.getCacheTtl(field))) {
+                freshFields.add(field);
+            }
+        }
+        return !freshFields.isEmpty() ? entry.playPackageInfo.project(freshFields) : null;
+    }
+
+    /**
+     * Put the information of a package in the cache, evicting the least recently used entries
+     * if the cache grows beyond its maximum size. A projection is merged into the cached
+     * information of the package, only the fields it holds are considered fetched now.
+     *
+     * @param playPackageInfo The information to cache
+     */
+    public synchronized void put(PlayPackageInfo playPackageInfo) {
+        String packageName = playPackageInfo.getPackageName();
+        Set<PlayField> fetchedFields = playPackageInfo.getFields();
+        long[] fetchedAt = new long[PlayField.values().length];
+        Arrays.fill(fetchedAt, NOT_FETCHED);
+
+        Entry previous = entries.get(packageName);
+        if (previous != null && fetchedFields.size() < fetchedAt.length) {
+            playPackageInfo = previous.playPackageInfo.merge(playPackageInfo);
+            System.arraycopy(previous.fetchedAt, 0, fetchedAt, 0, fetchedAt.length);
+        }
+        long now = nowMillis();
+        for (PlayField field : fetchedFields) {
+            fetchedAt[field.ordinal()] = now;
+        }
+
+        int entrySize = sizeOf(playPackageInfo);
+        if (entrySize > maxSize) {
+            return;
+        }
+
+        removeEntry(packageName);
+        entries.put(packageName, new Entry(playPackageInfo, entrySize, fetchedAt));
+        size += entrySize;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * Shrink the cache according to the memory pressure reported by Android
+     *
+     * @param level The level passed to {@link ComponentCallbacks2#onTrimMemory(int)}
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimToSize(maxSize / 2);
+        }
+    }
+
+    public synchronized void evictAll() {
+        trimToSize(0);
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hitCount, missCount, evictionCount, size, maxSize);
+    }
+
+    private synchronized void trimToSize(int targetSize) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (size > targetSize && iterator.hasNext()) {
+            size -= iterator.next().getValue().size;
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    private void removeEntry(String packageName) {
+        Entry previous = entries.remove(packageName);
+        if (previous != null) {
+            size -= previous.size;
+        }
+    }
+
+    private long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(clock.nanoTime());
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        for (PlayField field : PlayField.values()) {
+            if (entry.isFresh(field, now,
+                    config.getCacheTtl(field) + config.getMaxStaleness())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int sizeOf(PlayPackageInfo playPackageInfo) {
+        int entrySize = ENTRY_OVERHEAD
+                + sizeOf(playPackageInfo.getPackageName())
+                + sizeOf(playPackageInfo.getPackageUrl())
+                + sizeOf(playPackageInfo.getPackageVersion())
+                + sizeOf(playPackageInfo.getDownloads())
+                + sizeOf(playPackageInfo.getPublishedDate())
+                + sizeOf(playPackageInfo.getOsRequirements())
+                + sizeOf(playPackageInfo.getContentRating())
+                + sizeOf(playPackageInfo.getAppRating())
+                + sizeOf(playPackageInfo.getAppRatingCount());
+
+        List<String> changelogArray = playPackageInfo.getChangelogArray();
+        if (changelogArray != null) {
+            for (int i = 0; i < changelogArray.size(); i++) {
+                entrySize += sizeOf(changelogArray.get(i));
+            }
+        }
+        return entrySize;
+    }
+
+    private static int sizeOf(String value) {
+        return value != null ? STRING_OVERHEAD + 2 * value.length() : 0;
+    }
+
+    private static class Entry {
+        private final PlayPackageInfo playPackageInfo;
+        private final int size;
+        private final long[] fetchedAt;
+
+        private Entry(PlayPackageInfo playPackageInfo, int size, long[] fetchedAt) {
+            this.playPackageInfo = playPackageInfo;
+            this.size = size;
+            this.fetchedAt = fetchedAt;
+        }
+
+        private boolean isFresh(PlayField field, long now, long ttl) {
+            long fieldFetchedAt = fetchedAt[field.ordinal()];
+            return fieldFetchedAt != NOT_FETCHED && now - fieldFetchedAt <= ttl;
+        }
+    }
+}
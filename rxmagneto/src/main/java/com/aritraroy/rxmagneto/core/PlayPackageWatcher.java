@@ -0,0 +1,111 @@
+package com.aritraroy.rxmagneto.core;
+
+import com.aritraroy.rxmagneto.cache.DiskPlayPackageInfoCache;
+import com.aritraroy.rxmagneto.domain.PlayField;
+import com.aritraroy.rxmagneto.domain.PlayPackageChange;
+import com.aritraroy.rxmagneto.domain.PlayPackageInfo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+
+/**
+ * Polls Play Store for changes of many packages using a single timer. The fetches are spread
+ * evenly across the polling interval, one package at a time, and every fetch is a conditional
+ * request using the validators of the previous snapshot, so unchanged pages are cheap.
+ */
+class PlayPackageWatcher {
+
+    private final RxMagnetoInternal rxMagnetoInternal;
+
+    PlayPackageWatcher(RxMagnetoInternal rxMagnetoInternal) {
+        this.rxMagnetoInternal = rxMagnetoInternal;
+    }
+
+    /**
+     * Watch the specified fields of many packages. The first snapshot of each package is only
+     * used as a baseline. Failed polls are skipped and the package is polled again in the next
+     * round. A tick is dropped if the previous fetch is still running.
+     *
+     * @param packageNames The package names to watch, at least one
+     * @param fields       The fields to watch, at least one
+     * @param interval     The interval in which every package is polled once
+     * @param unit         The unit of the interval
+     * @return An Observable emitting a {@link PlayPackageChange} for every changed field
+     * @throws IllegalArgumentException If there are no packages or fields to watch
+     */
+    Observable<PlayPackageChange> watch(Collection<String> packageNames, Set<PlayField> fields,
+                                        long interval, TimeUnit unit) {
+        if (packageNames.isEmpty() || fields.isEmpty()) {
+            throw new IllegalArgumentException("There must be packages and fields to watch");
+        }
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        final List<String> packages = new ArrayList<>(new LinkedHashSet<>(packageNames));
+        final Set<PlayField> watchedFields = EnumSet.noneOf(PlayField.class);
+        watchedFields.addAll(fields);
+        final long period = Math.max(1, unit.toMillis(interval) / packages.size());
+
+        return Flowable.defer(() -> {
+            // The snapshots are read when a fetch starts on the timer thread and written when
+            // it ends on the network thread. This needs no lock only because concatMap runs
+            // a single fetch at a time and starts the next one after the previous one has
+            // completed, which also makes the writes visible to the next read.
+            final Map<String, DiskPlayPackageInfoCache.Entry> snapshots = new HashMap<>();
+            final AtomicInteger nextIndex = new AtomicInteger();
+
+            return Flowable.interval(0, period, TimeUnit.MILLISECONDS)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> {
+                        final String packageName = packages.get(
+                                nextIndex.getAndIncrement() % packages.size());
+                        return rxMagnetoInternal
+                                .revalidatePlayPackageInfo(packageName,
+                                        snapshots.get(packageName))
+                                .compose(rxMagnetoInternal
+                                        .<DiskPlayPackageInfoCache.Entry>applyNetworkScheduler())
+                                .toFlowable()
+                                .onErrorResumeNext(Flowable.<DiskPlayPackageInfoCache.Entry>empty())
+                                .concatMapIterable(entry -> getChanges(
+                                        snapshots.put(packageName, entry), entry, watchedFields));
+                    }, 1);
+        })
+                .compose(rxMagnetoInternal.<PlayPackageChange>applyResultScheduler())
+                .toObservable();
+    }
+
+    private static List<PlayPackageChange> getChanges(DiskPlayPackageInfoCache.Entry previousEntry,
+                                                      DiskPlayPackageInfoCache.Entry entry,
+                                                      Set<PlayField> fields) {
+        if (previousEntry == null || previousEntry == entry) {
+            return Collections.emptyList();
+        }
+
+        PlayPackageInfo previousPlayPackageInfo = previousEntry.getPlayPackageInfo();
+        PlayPackageInfo playPackageInfo = entry.getPlayPackageInfo();
+        List<PlayPackageChange> changes = new ArrayList<>();
+        for (PlayField field : fields) {
+            if (!equals(previousPlayPackageInfo.getValue(field), playPackageInfo.getValue(field))) {
+                changes.add(new PlayPackageChange(field, previousPlayPackageInfo,
+                        playPackageInfo));
+            }
+        }
+        return changes;
+    }
+
+    private static boolean equals(Object first, Object second) {
+        return first == null ? second == null : first.equals(second);
+    }
+}
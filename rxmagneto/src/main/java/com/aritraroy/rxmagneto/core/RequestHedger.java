@@ -0,0 +1,145 @@
+package com.aritraroy.rxmagneto.core;
+
+import com.aritraroy.rxmagneto.metrics.LatencyHistogram;
+import com.aritraroy.rxmagneto.network.HedgingPolicy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.SingleTransformer;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Hedges single attempts of a request according to a {@link HedgingPolicy}. If the response
+ * headers of an attempt have not arrived within the delay of the policy and the hedging budget
+ * allows it, the same attempt is sent again and the first one to succeed is used while the other
+ * one is disposed. Once the headers have arrived the attempt is never hedged, so a slow but
+ * progressing download is not fetched twice. A failure of either attempt is only reported once
+ * the other one has failed too, as the failure of the first attempt.
+ * <p>
+ * The delay is derived from the time until the response headers arrived of successful
+ * attempts that the attempts themselves mark as worth recording, e.g. complete fetches with a
+ * full response, as failures, aborted hedges, projections and near-empty responses would skew
+ * it.
+ */
+class RequestHedger {
+
+    private final HedgingPolicy hedgingPolicy;
+    private final Scheduler networkScheduler;
+    private final Scheduler timerScheduler;
+    private final LatencyHistogram timeToFirstByteHistogram = new LatencyHistogram();
+
+    RequestHedger(HedgingPolicy hedgingPolicy, Scheduler networkScheduler) {
+        this(hedgingPolicy, networkScheduler, Schedulers.computation());
+    }
+
+    RequestHedger(HedgingPolicy hedgingPolicy, Scheduler networkScheduler,
+                  Scheduler timerScheduler) {
+        this.hedgingPolicy = hedgingPolicy;
+        this.networkScheduler = networkScheduler;
+        this.timerScheduler = timerScheduler;
+    }
+
+    LatencyHistogram getTimeToFirstByteHistogram() {
+        return timeToFirstByteHistogram;
+    }
+
+    /**
+     * Hedge a single attempt of a request
+     *
+     * @param attempt      Creates an attempt of the request
+     * @param hedgeLimiter Applied to the hedge only, e.g. to take its own token of a rate limiter
+     * @return The hedged attempt
+     */
+    <T> Single<T> hedge(final Attempt<T> attempt, final SingleTransformer<T, T> hedgeLimiter) {
+        return Single.defer(() -> {
+            hedgingPolicy.onRequest();
+            long delayMillis = hedgingPolicy.getDelayMillis(timeToFirstByteHistogram);
+            final AtomicBoolean hasResponse = new AtomicBoolean();
+            final AtomicInteger runningAttempts = new AtomicInteger(1);
+            final AtomicReference<Throwable> firstError = new AtomicReference<>();
+            Single<T> first = measured(attempt, hasResponse)
+                    .subscribeOn(networkScheduler)
+                    .onErrorResumeNext(error -> {
+                        firstError.set(error);
+                        return runningAttempts.decrementAndGet() == 0
+                                ? Single.<T>error(error)
+                                : Single.<T>never();
+                    });
+            Single<T> hedge = Single.timer(delayMillis, TimeUnit.MILLISECONDS, timerScheduler)
+                    .flatMap(tick -> !hasResponse.get()
+                            && hedgingPolicy.tryAcquireHedge()
+                            && incrementIfPositive(runningAttempts)
+                            ? measured(attempt, new AtomicBoolean())
+                            .compose(hedgeLimiter)
+                            .subscribeOn(networkScheduler)
+                            .onErrorResumeNext(error -> runningAttempts.decrementAndGet() == 0
+                                    ? Single.<T>error(firstError.get())
+                                    : Single.<T>never())
+                            : Single.<T>never());
+            return first.ambWith(hedge);
+        });
+    }
+
+    /**
+     * Track when the response headers of an attempt arrive and record the time it took once the
+     * attempt has succeeded, if the attempt asked for it
+     */
+    private <T> Single<T> measured(final Attempt<T> attempt, final AtomicBoolean hasResponse) {
+        return Single.defer(() -> {
+            final long startNanos = timerScheduler.now(TimeUnit.NANOSECONDS);
+            final AtomicLong timeToFirstByteNanos = new AtomicLong(-1);
+            return attempt.create(isRecorded -> {
+                hasResponse.set(true);
+                if (isRecorded) {
+                    timeToFirstByteNanos.set(timerScheduler.now(TimeUnit.NANOSECONDS)
+                            - startNanos);
+                }
+            }).doOnSuccess(value -> {
+                long nanos = timeToFirstByteNanos.get();
+                if (nanos >= 0) {
+                    timeToFirstByteHistogram.record(nanos);
+                }
+            });
+        });
+    }
+
+    /**
+     * Increment a counter unless it has already dropped to zero
+     *
+     * @return True if it was incremented
+     */
+    private static boolean incrementIfPositive(AtomicInteger counter) {
+        int current;
+        do {
+            current = counter.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Creates an attempt of a request, which reports the arrival of its response headers
+     */
+    interface Attempt<T> {
+        Single<T> create(ResponseListener responseListener);
+    }
+
+    /**
+     * Notified once the response headers of an attempt have arrived
+     */
+    interface ResponseListener {
+        /**
+         * @param isRecorded True if the time until the headers arrived should feed the hedging
+         *                   delay once the attempt succeeds
+         */
+        void onResponse(boolean isRecorded);
+    }
+}
@@ -9,28 +9,44 @@ import static com.aritraroy.rxmagneto.core.RxMagnetoErrorCodeMap.ERROR_CHANGELOG
 import static com.aritraroy.rxmagneto.core.RxMagnetoErrorCodeMap.ERROR_CONTENT_RATING;
 import static com.aritraroy.rxmagneto.core.RxMagnetoErrorCodeMap.ERROR_DOWNLOADS;
 import static com.aritraroy.rxmagneto.core.RxMagnetoErrorCodeMap.ERROR_OS_REQUIREMENTS;
+import static com.aritraroy.rxmagneto.core.RxMagnetoErrorCodeMap.ERROR_PACKAGE_INFO;
 import static com.aritraroy.rxmagneto.core.RxMagnetoErrorCodeMap.ERROR_PUBLISHED_DATE;
 import static com.aritraroy.rxmagneto.core.RxMagnetoErrorCodeMap.ERROR_UPDATE;
 import static com.aritraroy.rxmagneto.core.RxMagnetoErrorCodeMap.ERROR_URL;
 import static com.aritraroy.rxmagneto.core.RxMagnetoErrorCodeMap.ERROR_VERIFIED_ERROR;
 import static com.aritraroy.rxmagneto.core.RxMagnetoErrorCodeMap.ERROR_VERSION;
-import static com.aritraroy.rxmagneto.core.RxMagnetoInternal.MARKET_PLAY_STORE_URL;
-import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_CONTENT_RATING;
-import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_DOWNLOADS;
-import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_LAST_PUBLISHED_DATE;
-import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_OS_REQUIREMENTS;
-import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_VERSION;
+import static com.aritraroy.rxmagneto.core.RxMagnetoErrorCodeMap.ERROR_WATCH;
 import static com.aritraroy.rxmagneto.util.Constants.APP_VERSION_VARIES_WITH_DEVICE;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.res.Configuration;
 
 import com.aritraroy.rxmagneto.R;
+import com.aritraroy.rxmagneto.cache.CacheStats;
+import com.aritraroy.rxmagneto.domain.PackageUpgrade;
+import com.aritraroy.rxmagneto.domain.PlayField;
+import com.aritraroy.rxmagneto.domain.PlayPackageChange;
+import com.aritraroy.rxmagneto.domain.PlayPackageInfo;
 import com.aritraroy.rxmagneto.exceptions.AppVersionNotFoundException;
+import com.aritraroy.rxmagneto.exceptions.PackageFetchException;
 import com.aritraroy.rxmagneto.exceptions.RxMagnetoException;
+import com.aritraroy.rxmagneto.metrics.LatencyHistogram;
+import com.aritraroy.rxmagneto.metrics.Operation;
+import com.aritraroy.rxmagneto.util.VersionComparator;
 
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
 import io.reactivex.Single;
+import io.reactivex.exceptions.CompositeException;
 import io.reactivex.schedulers.Schedulers;
 
 /**
@@ -44,10 +60,14 @@ import io.reactivex.schedulers.Schedulers;
  */
 public class RxMagneto {
 
+    private static final int DEFAULT_UPGRADE_SCAN_CONCURRENCY = 4;
+
     private static volatile RxMagneto INSTANCE = null;
 
     private Context context;
     private RxMagnetoInternal rxMagnetoInternal;
+    private PlayPackageWatcher playPackageWatcher;
+    private ComponentCallbacks2 componentCallbacks;
 
     private RxMagneto() {
         if (INSTANCE != null) {
@@ -68,8 +88,65 @@ public class RxMagneto {
     }
 
     public void initialize(Context context) {
+        initialize(context, new RxMagnetoConfig.Builder().build());
+    }
+
+    /**
+     * Initialize RxMagneto with a custom configuration
+     *
+     * @param context The application or activity context
+     * @param config  The {@link RxMagnetoConfig} to use
+     */
+    public void initialize(Context context, RxMagnetoConfig config) {
         this.context = context;
-        this.rxMagnetoInternal = new RxMagnetoInternal(context);
+        if (rxMagnetoInternal != null) {
+            rxMagnetoInternal.release();
+        }
+        this.rxMagnetoInternal = new RxMagnetoInternal(context, config);
+        this.playPackageWatcher = new PlayPackageWatcher(rxMagnetoInternal);
+        registerComponentCallbacks(context.getApplicationContext());
+    }
+
+    /**
+     * Get the statistics of the in-memory cache of Play Store information
+     *
+     * @return The current {@link CacheStats}
+     */
+    public CacheStats getCacheStats() {
+        return rxMagnetoInternal.getPlayPackageInfoCache().getStats();
+    }
+
+    /**
+     * Get the latency distribution of the requests of a particular kind made to Play Store,
+     * e.g. to find their p99 latency. Requests served from the cache are not included.
+     *
+     * @param operation A particular kind of request
+     * @return The {@link LatencyHistogram} of the operation
+     */
+    public LatencyHistogram getLatencyHistogram(Operation operation) {
+        return rxMagnetoInternal.getHistogramMetricsListener().getHistogram(operation);
+    }
+
+    private void registerComponentCallbacks(Context applicationContext) {
+        if (componentCallbacks != null) {
+            applicationContext.unregisterComponentCallbacks(componentCallbacks);
+        }
+        componentCallbacks = new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                rxMagnetoInternal.getPlayPackageInfoCache().onTrimMemory(level);
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                rxMagnetoInternal.getPlayPackageInfoCache().evictAll();
+            }
+        };
+        applicationContext.registerComponentCallbacks(componentCallbacks);
     }
 
     /**
@@ -86,14 +163,14 @@ public class RxMagneto {
     }
 
     /**
-     * Grab the Play Store url of the specified package
+     * Grab the Play Store url of the specified package, built from the configured base url
      *
      * @param packageName A particular package name
      * @return A Single emitting the url
      */
     public Single<String> grabUrl(String packageName) {
         if (!isEmpty(packageName)) {
-            return Single.just(MARKET_PLAY_STORE_URL + packageName)
+            return Single.just(rxMagnetoInternal.getPackageUrl(packageName))
                     .subscribeOn(Schedulers.trampoline());
         }
         return Single.error(new RxMagnetoException(ERROR_URL.getErrorCode(),
@@ -122,8 +199,8 @@ public class RxMagneto {
     public Single<String> grabVerifiedUrl(String packageName) {
         if (context != null && !isEmpty(packageName)) {
             return rxMagnetoInternal.getPlayPackageInfoWithValidation(packageName)
-                    .subscribeOn(Schedulers.io())
-                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getPackageUrl()));
+                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getPackageUrl()))
+                    .compose(rxMagnetoInternal.applySchedulers());
         }
         return Single.error(new RxMagnetoException(ERROR_VERIFIED_ERROR.getErrorCode(),
                 context.getString(R.string.message_verified_url_failed)));
@@ -150,11 +227,9 @@ public class RxMagneto {
      */
     public Single<String> grabVersion(String packageName) {
         if (context != null && !isEmpty(packageName)) {
-            return rxMagnetoInternal.getPlayPackageInfoWithValidation(packageName)
-                    .subscribeOn(Schedulers.io())
-                    .flatMap(playPackageInfo -> rxMagnetoInternal.getPlayPackageInfoForTag(packageName,
-                            TAG_PLAY_STORE_VERSION))
-                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getPackageVersion()));
+            return rxMagnetoInternal.getPlayPackageInfo(packageName, PlayField.VERSION)
+                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getPackageVersion()))
+                    .compose(rxMagnetoInternal.applySchedulers());
         }
         return Single.error(new RxMagnetoException(ERROR_VERSION.getErrorCode(),
                 context.getString(R.string.message_package_version_failed)));
@@ -174,32 +249,21 @@ public class RxMagneto {
     }
 
     /**
-     * Check if an upgrade is available for the specified package
+     * Check if an upgrade is available for the specified package. The installed version is
+     * compared with the version on Play Store using a {@link VersionComparator}, so an
+     * installed version newer than the one on Play Store, e.g. a beta, is not an upgrade.
      *
      * @param packageName A particular package name
      * @return A Single emitting if an app upgrade is available
      */
     public Single<Boolean> isUpgradeAvailable(String packageName) {
         if (context != null && !isEmpty(packageName)) {
-            String currentVersionStr;
-            try {
-                currentVersionStr = context.getPackageManager().getPackageInfo(packageName, 0)
-                        .versionName;
-            } catch (NameNotFoundException e) {
-                return Single.error(new NameNotFoundException(
-                        context.getString(R.string.message_app_not_installed, packageName)));
-            }
-
-            return rxMagnetoInternal.getPlayPackageInfoForTag(packageName, TAG_PLAY_STORE_VERSION)
-                    .subscribeOn(Schedulers.io())
-                    .flatMap(playPackageInfo -> {
-                        String currentVersion = playPackageInfo.getPackageVersion();
-                        if (APP_VERSION_VARIES_WITH_DEVICE.equals(currentVersion)) {
-                            return Single.error(new AppVersionNotFoundException(context
-                                    .getString(R.string.message_app_version_varies)));
-                        }
-                        return Single.just(!currentVersionStr.equals(currentVersion));
-                    });
+            return Single.fromCallable(() -> getInstalledVersion(packageName))
+                    .flatMap(installedVersion -> rxMagnetoInternal.getPlayPackageInfo(
+                            packageName, PlayField.VERSION)
+                            .map(playPackageInfo -> isUpgradeAvailable(installedVersion,
+                                    playPackageInfo)))
+                    .compose(rxMagnetoInternal.applySchedulers());
         }
         return Single.error(new RxMagnetoException(ERROR_UPDATE.getErrorCode(),
                 context.getString(R.string.message_package_update_failed)));
@@ -226,9 +290,9 @@ public class RxMagneto {
      */
     public Single<String> grabDownloads(String packageName) {
         if (context != null && !isEmpty(packageName)) {
-            return rxMagnetoInternal.getPlayPackageInfoForTag(packageName, TAG_PLAY_STORE_DOWNLOADS)
-                    .subscribeOn(Schedulers.io())
-                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getDownloads()));
+            return rxMagnetoInternal.getPlayPackageInfo(packageName, PlayField.DOWNLOADS)
+                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getDownloads()))
+                    .compose(rxMagnetoInternal.applySchedulers());
         }
         return Single.error(new RxMagnetoException(ERROR_DOWNLOADS.getErrorCode(),
                 context.getString(R.string.message_downloads_failed)));
@@ -255,9 +319,9 @@ public class RxMagneto {
      */
     public Single<String> grabPublishedDate(String packageName) {
         if (context != null && !isEmpty(packageName)) {
-            return rxMagnetoInternal.getPlayPackageInfoForTag(packageName, TAG_PLAY_STORE_LAST_PUBLISHED_DATE)
-                    .subscribeOn(Schedulers.io())
-                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getPublishedDate()));
+            return rxMagnetoInternal.getPlayPackageInfo(packageName, PlayField.PUBLISHED_DATE)
+                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getPublishedDate()))
+                    .compose(rxMagnetoInternal.applySchedulers());
         }
         return Single.error(new RxMagnetoException(ERROR_PUBLISHED_DATE.getErrorCode(),
                 context.getString(R.string.message_published_date_failed)));
@@ -284,9 +348,9 @@ public class RxMagneto {
      */
     public Single<String> grabOsRequirements(String packageName) {
         if (context != null && !isEmpty(packageName)) {
-            return rxMagnetoInternal.getPlayPackageInfoForTag(packageName, TAG_PLAY_STORE_OS_REQUIREMENTS)
-                    .subscribeOn(Schedulers.io())
-                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getOsRequirements()));
+            return rxMagnetoInternal.getPlayPackageInfo(packageName, PlayField.OS_REQUIREMENTS)
+                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getOsRequirements()))
+                    .compose(rxMagnetoInternal.applySchedulers());
         }
         return Single.error(new RxMagnetoException(ERROR_OS_REQUIREMENTS.getErrorCode(),
                 context.getString(R.string.message_os_requirement_failed)));
@@ -313,9 +377,9 @@ public class RxMagneto {
      */
     public Single<String> grabContentRating(String packageName) {
         if (context != null && !isEmpty(packageName)) {
-            return rxMagnetoInternal.getPlayPackageInfoForTag(packageName, TAG_PLAY_STORE_CONTENT_RATING)
-                    .subscribeOn(Schedulers.io())
-                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getContentRating()));
+            return rxMagnetoInternal.getPlayPackageInfo(packageName, PlayField.CONTENT_RATING)
+                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getContentRating()))
+                    .compose(rxMagnetoInternal.applySchedulers());
         }
         return Single.error(new RxMagnetoException(ERROR_CONTENT_RATING.getErrorCode(),
                 context.getString(R.string.message_content_rating_failed)));
@@ -342,9 +406,9 @@ public class RxMagneto {
      */
     public Single<String> grabAppRating(String packageName) {
         if (context != null && !isEmpty(packageName)) {
-            return rxMagnetoInternal.getPlayPackageInfoWithAppRating(packageName)
-                    .subscribeOn(Schedulers.io())
-                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getAppRating()));
+            return rxMagnetoInternal.getPlayPackageInfo(packageName, PlayField.APP_RATING)
+                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getAppRating()))
+                    .compose(rxMagnetoInternal.applySchedulers());
         }
         return Single.error(new RxMagnetoException(ERROR_APP_RATING.getErrorCode(),
                 context.getString(R.string.message_app_rating_failed)));
@@ -371,9 +435,9 @@ public class RxMagneto {
      */
     public Single<String> grabAppRatingsCount(String packageName) {
         if (context != null && !isEmpty(packageName)) {
-            return rxMagnetoInternal.getPlayPackageInfoWithAppRatingsCount(packageName)
-                    .subscribeOn(Schedulers.io())
-                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getAppRatingCount()));
+            return rxMagnetoInternal.getPlayPackageInfo(packageName, PlayField.APP_RATING_COUNT)
+                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getAppRatingCount()))
+                    .compose(rxMagnetoInternal.applySchedulers());
         }
         return Single.error(new RxMagnetoException(ERROR_APP_RATING_COUNT.getErrorCode(),
                 context.getString(R.string.message_app_rating_count_failed)));
@@ -402,9 +466,9 @@ public class RxMagneto {
      */
     public Single<List<String>> grabPlayStoreRecentChangelogArray(String packageName) {
         if (context != null && !isEmpty(packageName)) {
-            return rxMagnetoInternal.getPlayPackageInfoWithRecentChangelogArray(packageName)
-                    .subscribeOn(Schedulers.io())
-                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getChangelogArray()));
+            return rxMagnetoInternal.getPlayPackageInfo(packageName, PlayField.CHANGELOG)
+                    .flatMap(playPackageInfo -> Single.just(playPackageInfo.getChangelogArray()))
+                    .compose(rxMagnetoInternal.applySchedulers());
         }
         return Single.error(new RxMagnetoException(ERROR_CHANGELOG.getErrorCode(),
                 context.getString(R.string.message_app_changelog_failed)));
@@ -431,8 +495,8 @@ public class RxMagneto {
      */
     public Single<String> grabPlayStoreRecentChangelog(String packageName) {
         if (context != null && !isEmpty(packageName)) {
-            return rxMagnetoInternal.getPlayPackageInfoWithRecentChangelogArray(packageName)
-                    .subscribeOn(Schedulers.io())
+            return rxMagnetoInternal.getPlayPackageInfo(packageName, PlayField.CHANGELOG)
+                    .observeOn(rxMagnetoInternal.getParseScheduler())
                     .flatMap(playPackageInfo -> Single.just(playPackageInfo.getChangelogArray())
                             .flatMap(strings -> {
                                 StringBuilder stringBuilder = new StringBuilder();
@@ -444,9 +508,253 @@ public class RxMagneto {
                                     }
                                 }
                                 return Single.just(stringBuilder.toString());
-                            }));
+                            }))
+                    .compose(rxMagnetoInternal.applySchedulers());
         }
         return Single.error(new RxMagnetoException(ERROR_CHANGELOG.getErrorCode(),
                 context.getString(R.string.message_app_changelog_failed)));
     }
+
+    /**
+     * Stream the changelog or "What's New" section of the current app entry by entry
+     *
+     * @return A Flowable emitting the changelog entries
+     * @see #streamRecentChangelog(String)
+     */
+    public Flowable<String> streamRecentChangelog() {
+        if (context != null) {
+            return streamRecentChangelog(context.getPackageName());
+        }
+        return Flowable.error(new RxMagnetoException(ERROR_CHANGELOG.getErrorCode(),
+                context.getString(R.string.message_app_changelog_failed)));
+    }
+
+    /**
+     * Stream the changelog or "What's New" section of the specified app entry by entry. Every
+     * entry is emitted as soon as it has been read from the page and the download stops once
+     * the subscription is cancelled, so {@code take(3)} only downloads and parses the page up
+     * to the third entry.
+     *
+     * @param packageName A particular package name
+     * @return A Flowable emitting the changelog entries
+     */
+    public Flowable<String> streamRecentChangelog(String packageName) {
+        if (context != null && !isEmpty(packageName)) {
+            return rxMagnetoInternal.streamRecentChangelog(packageName)
+                    .compose(rxMagnetoInternal.<String>applyResultScheduler());
+        }
+        return Flowable.error(new RxMagnetoException(ERROR_CHANGELOG.getErrorCode(),
+                context.getString(R.string.message_app_changelog_failed)));
+    }
+
+    /**
+     * Grab every available Play Store information of the current package at once
+     *
+     * @return A Single emitting the complete {@link PlayPackageInfo}
+     */
+    public Single<PlayPackageInfo> grabAll() {
+        if (context != null) {
+            return grabAll(context.getPackageName());
+        }
+        return Single.error(new RxMagnetoException(ERROR_PACKAGE_INFO.getErrorCode(),
+                context.getString(R.string.message_package_info_failed)));
+    }
+
+    /**
+     * Grab every available Play Store information of the specified package at once. The Play
+     * Store page is downloaded and parsed only once for all the fields, so prefer this over
+     * multiple individual grab calls when more than one field is needed.
+     *
+     * @param packageName A particular package name
+     * @return A Single emitting the complete {@link PlayPackageInfo}
+     */
+    public Single<PlayPackageInfo> grabAll(String packageName) {
+        if (context != null && !isEmpty(packageName)) {
+            return rxMagnetoInternal.getPlayPackageInfo(packageName)
+                    .compose(rxMagnetoInternal.applySchedulers());
+        }
+        return Single.error(new RxMagnetoException(ERROR_PACKAGE_INFO.getErrorCode(),
+                context.getString(R.string.message_package_info_failed)));
+    }
+
+    /**
+     * Grab every available Play Store information of many packages at once. At most
+     * {@code maxConcurrency} packages are fetched at the same time and no more packages are
+     * fetched than the downstream has requested. Results are emitted as soon as they are
+     * available, so their order may differ from the order of {@code packageNames}.
+     * <p>
+     * A failure of one package does not cancel the rest of the batch. Every failure is wrapped
+     * in a {@link PackageFetchException} and the batch terminates with an error once all the
+     * other packages are done. A single failure is reported as that
+     * {@link PackageFetchException}, several failures as one {@link CompositeException} whose
+     * {@link CompositeException#getExceptions()} are the {@link PackageFetchException} of every
+     * failed package.
+     *
+     * @param packageNames   The package names to fetch
+     * @param maxConcurrency The maximum no. of packages fetched in parallel
+     * @return A Flowable emitting the complete {@link PlayPackageInfo} of every package
+     */
+    public Flowable<PlayPackageInfo> grabAll(Iterable<String> packageNames, int maxConcurrency) {
+        if (context != null && packageNames != null && maxConcurrency > 0) {
+            return Flowable.fromIterable(packageNames)
+                    .flatMap(packageName -> rxMagnetoInternal.getPlayPackageInfo(packageName)
+                            .compose(rxMagnetoInternal.applyNetworkScheduler())
+                            .onErrorResumeNext(throwable -> Single.error(
+                                    new PackageFetchException(packageName, throwable)))
+                            .toFlowable(), true, maxConcurrency)
+                    .compose(rxMagnetoInternal.applyResultScheduler());
+        }
+        return Flowable.error(new RxMagnetoException(ERROR_PACKAGE_INFO.getErrorCode(),
+                context.getString(R.string.message_package_info_failed)));
+    }
+
+    /**
+     * Grab only some Play Store information of the specified package. The returned
+     * {@link PlayPackageInfo} holds exactly the requested fields, the others are null. Fields
+     * that are still fresh in the cache are served from there, and the page is only read until
+     * the missing ones have been found, so you pay only for the fields you use.
+     *
+     * @param packageName A particular package name
+     * @param fields      The fields to grab
+     * @return A Single emitting the {@link PlayPackageInfo} holding the requested fields
+     */
+    public Single<PlayPackageInfo> grab(String packageName, Set<PlayField> fields) {
+        if (context != null && !isEmpty(packageName) && fields != null && !fields.isEmpty()) {
+            return rxMagnetoInternal.getProjectedPlayPackageInfo(packageName, fields)
+                    .compose(rxMagnetoInternal.applySchedulers());
+        }
+        return Single.error(new RxMagnetoException(ERROR_PACKAGE_INFO.getErrorCode(),
+                context.getString(R.string.message_package_info_failed)));
+    }
+
+    /**
+     * Observe every available Play Store information of the specified package. If the cached
+     * information has expired within the staleness window set with
+     * {@link RxMagnetoConfig.Builder#setMaxStaleness(long, TimeUnit)}, it is emitted at once
+     * and followed by the refreshed information; otherwise only a single, fresh
+     * {@link PlayPackageInfo} is emitted. A failed refresh is reported as an error after the
+     * stale information.
+     *
+     * @param packageName A particular package name
+     * @return An Observable emitting one or two {@link PlayPackageInfo}
+     */
+    public Observable<PlayPackageInfo> observeAll(String packageName) {
+        if (context != null && !isEmpty(packageName)) {
+            return rxMagnetoInternal.observePlayPackageInfo(packageName,
+                    EnumSet.allOf(PlayField.class))
+                    .compose(rxMagnetoInternal.<PlayPackageInfo>applyResultScheduler())
+                    .toObservable();
+        }
+        return Observable.error(new RxMagnetoException(ERROR_PACKAGE_INFO.getErrorCode(),
+                context.getString(R.string.message_package_info_failed)));
+    }
+
+    /**
+     * Watch some fields of many packages for changes. A single timer polls one package at a
+     * time, spreading the fetches evenly across the interval, and every fetch is a conditional
+     * request, so pages that have not changed are not downloaded again. An event is emitted
+     * only when a watched field actually changes, the first poll of each package just records
+     * its current state.
+     * <p>
+     * Polls that fail, e.g. when there is no internet connection, are skipped silently and the
+     * package is polled again in the next round. Dispose the subscription to stop watching.
+     *
+     * @param packageNames The package names to watch
+     * @param fields       The fields to watch
+     * @param interval     The interval in which every package is polled once
+     * @param unit         The unit of the interval
+     * @return An Observable emitting a {@link PlayPackageChange} for every changed field
+     */
+    public Observable<PlayPackageChange> watch(Collection<String> packageNames,
+                                               Set<PlayField> fields, long interval,
+                                               TimeUnit unit) {
+        if (context != null && packageNames != null && !packageNames.isEmpty()
+                && fields != null && !fields.isEmpty() && interval > 0) {
+            return playPackageWatcher.watch(packageNames, fields, interval, unit);
+        }
+        return Observable.error(new RxMagnetoException(ERROR_WATCH.getErrorCode(),
+                context.getString(R.string.message_watch_failed)));
+    }
+
+    /**
+     * Scan all installed packages for upgrades available on Play Store, checking up to 4
+     * packages in parallel
+     *
+     * @return A Flowable emitting a {@link PackageUpgrade} for every installed package
+     * @see #scanInstalledForUpgrades(int)
+     */
+    public Flowable<PackageUpgrade> scanInstalledForUpgrades() {
+        return scanInstalledForUpgrades(DEFAULT_UPGRADE_SCAN_CONCURRENCY);
+    }
+
+    /**
+     * Scan all installed packages for upgrades available on Play Store. The installed
+     * packages are read with a single query to the package manager in the background, system
+     * packages that have never been updated are skipped as they are not distributed through
+     * Play Store. Results are emitted as soon as they arrive and a failure of one package, e.g.
+     * one that is not available on Play Store, does not cancel the others.
+     * <p>
+     * Every failure is wrapped in a {@link PackageFetchException} and the scan terminates with
+     * an error once all the other packages are done. A single failure is reported as that
+     * {@link PackageFetchException}, several failures as one {@link CompositeException} whose
+     * {@link CompositeException#getExceptions()} are the {@link PackageFetchException} of every
+     * failed package.
+     *
+     * @param maxConcurrency The maximum no. of packages to check in parallel
+     * @return A Flowable emitting a {@link PackageUpgrade} for every installed package
+     */
+    public Flowable<PackageUpgrade> scanInstalledForUpgrades(int maxConcurrency) {
+        if (context != null && maxConcurrency > 0) {
+            return Single.fromCallable(() -> context.getPackageManager().getInstalledPackages(0))
+                    .compose(rxMagnetoInternal.<List<PackageInfo>>applyNetworkScheduler())
+                    .flattenAsFlowable(packageInfos -> packageInfos)
+                    .filter(RxMagneto::isUpdatablePackage)
+                    .flatMap(packageInfo -> getPackageUpgrade(packageInfo)
+                            .compose(rxMagnetoInternal.applyNetworkScheduler())
+                            .onErrorResumeNext(throwable -> Single.error(
+                                    new PackageFetchException(packageInfo.packageName,
+                                            throwable)))
+                            .toFlowable(), true, maxConcurrency)
+                    .compose(rxMagnetoInternal.applyResultScheduler());
+        }
+        return Flowable.error(new RxMagnetoException(ERROR_UPDATE.getErrorCode(),
+                context.getString(R.string.message_package_update_failed)));
+    }
+
+    private Single<PackageUpgrade> getPackageUpgrade(PackageInfo packageInfo) {
+        return rxMagnetoInternal.getPlayPackageInfo(packageInfo.packageName, PlayField.VERSION)
+                .map(playPackageInfo -> new PackageUpgrade(packageInfo.packageName,
+                        packageInfo.versionName, playPackageInfo.getPackageVersion(),
+                        isUpgradeAvailable(packageInfo.versionName, playPackageInfo)));
+    }
+
+    private String getInstalledVersion(String packageName) throws NameNotFoundException {
+        try {
+            return context.getPackageManager().getPackageInfo(packageName, 0).versionName;
+        } catch (NameNotFoundException e) {
+            throw new NameNotFoundException(
+                    context.getString(R.string.message_app_not_installed, packageName));
+        }
+    }
+
+    private boolean isUpgradeAvailable(String installedVersion, PlayPackageInfo playPackageInfo)
+            throws AppVersionNotFoundException {
+        String playStoreVersion = playPackageInfo.getPackageVersion();
+        if (isEmpty(playStoreVersion)) {
+            throw new AppVersionNotFoundException(
+                    context.getString(R.string.message_package_version_failed));
+        }
+        if (APP_VERSION_VARIES_WITH_DEVICE.equals(playStoreVersion)) {
+            throw new AppVersionNotFoundException(
+                    context.getString(R.string.message_app_version_varies));
+        }
+        return VersionComparator.isNewer(playStoreVersion, installedVersion);
+    }
+
+    private static boolean isUpdatablePackage(PackageInfo packageInfo) {
+        ApplicationInfo applicationInfo = packageInfo.applicationInfo;
+        return packageInfo.versionName != null && (applicationInfo == null
+                || (applicationInfo.flags & ApplicationInfo.FLAG_SYSTEM) == 0
+                || (applicationInfo.flags & ApplicationInfo.FLAG_UPDATED_SYSTEM_APP) != 0);
+    }
 }
@@ -0,0 +1,545 @@
+package com.aritraroy.rxmagneto.core;
+
+import com.aritraroy.rxmagneto.domain.PlayField;
+import com.aritraroy.rxmagneto.metrics.MetricsListener;
+import com.aritraroy.rxmagneto.network.HedgingPolicy;
+import com.aritraroy.rxmagneto.network.HttpTransport;
+import com.aritraroy.rxmagneto.network.RetryPolicy;
+import com.aritraroy.rxmagneto.network.UrlConnectionHttpTransport;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Configuration used to tune how RxMagneto fetches and keeps Play Store information. Create it
+ * using its {@link Builder} and pass it to {@link RxMagneto#initialize}.
+ */
+public class RxMagnetoConfig {
+
+    private static final String DEFAULT_BASE_URL =
+            "https://play.google.com/store/apps/details?id=";
+    private static final int DEFAULT_MEMORY_CACHE_SIZE = 256 * 1024;
+    private static final long DEFAULT_CACHE_TTL = TimeUnit.MINUTES.toMillis(5);
+    private static final int DEFAULT_NETWORK_THREADS = 4;
+    private static final int DEFAULT_MAX_PENDING_REQUESTS = 128;
+    private static final long NETWORK_THREAD_KEEP_ALIVE_SECONDS = 30;
+    private static final String NETWORK_THREAD_NAME = "RxMagneto-network-";
+    private static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+    private static final long DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION =
+            TimeUnit.SECONDS.toMillis(30);
+    private static final long DEFAULT_CONNECTIVITY_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    private final String baseUrl;
+    private final int memoryCacheSize;
+    private final long diskCacheSize;
+    private final long defaultCacheTtl;
+    private final Map<PlayField, Long> cacheTtls;
+    private final long maxStaleness;
+    private final HttpTransport httpTransport;
+    private final Scheduler networkScheduler;
+    private final Scheduler parseScheduler;
+    private final Scheduler resultScheduler;
+    private final int maxPendingRequests;
+    private final MetricsListener metricsListener;
+    private final RetryPolicy retryPolicy;
+    private final HedgingPolicy hedgingPolicy;
+    private final double rateLimit;
+    private final int rateLimitBurstSize;
+    private final boolean isFailFastWhenRateLimited;
+    private final int circuitBreakerFailureThreshold;
+    private final long circuitBreakerOpenDurationMillis;
+    private final boolean isWaitForConnectivity;
+    private final long connectivityTimeoutMillis;
+
+    private RxMagnetoConfig(Builder builder) {
+        baseUrl = builder.baseUrl;
+        memoryCacheSize = builder.memoryCacheSize;
+        diskCacheSize = builder.diskCacheSize;
+        defaultCacheTtl = builder.defaultCacheTtl;
+        cacheTtls = new EnumMap<>(builder.cacheTtls);
+        maxStaleness = builder.maxStaleness;
+        httpTransport = builder.httpTransport != null
+                ? builder.httpTransport
+                : new UrlConnectionHttpTransport();
+        networkScheduler = builder.networkScheduler != null
+                ? builder.networkScheduler
+                : Schedulers.from(builder.networkExecutor != null
+                ? builder.networkExecutor
+                : createNetworkExecutor());
+        parseScheduler = builder.parseScheduler != null
+                ? builder.parseScheduler
+                : Schedulers.trampoline();
+        resultScheduler = builder.resultScheduler;
+        maxPendingRequests = builder.maxPendingRequests;
+        metricsListener = builder.metricsListener;
+        retryPolicy = builder.retryPolicy != null
+                ? builder.retryPolicy
+                : new RetryPolicy.Builder().build();
+        hedgingPolicy = builder.hedgingPolicy;
+        rateLimit = builder.rateLimit;
+        rateLimitBurstSize = builder.rateLimitBurstSize;
+        isFailFastWhenRateLimited = builder.isFailFastWhenRateLimited;
+        circuitBreakerFailureThreshold = builder.circuitBreakerFailureThreshold;
+        circuitBreakerOpenDurationMillis = builder.circuitBreakerOpenDurationMillis;
+        isWaitForConnectivity = builder.isWaitForConnectivity;
+        connectivityTimeoutMillis = builder.connectivityTimeoutMillis;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public int getMemoryCacheSize() {
+        return memoryCacheSize;
+    }
+
+    public long getDiskCacheSize() {
+        return diskCacheSize;
+    }
+
+    /**
+     * Get the time for which a cached value of the specified field is considered fresh
+     *
+     * @param field A particular field
+     * @return The time to live in milliseconds
+     */
+    public long getCacheTtl(PlayField field) {
+        Long cacheTtl = cacheTtls.get(field);
+        return cacheTtl != null ? cacheTtl : defaultCacheTtl;
+    }
+
+    /**
+     * @return The time in milliseconds for which an expired cached value may still be served
+     * while it is refreshed in the background, or 0 if expired values are never served
+     */
+    public long getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    public HttpTransport getHttpTransport() {
+        return httpTransport;
+    }
+
+    public Scheduler getNetworkScheduler() {
+        return networkScheduler;
+    }
+
+    public Scheduler getParseScheduler() {
+        return parseScheduler;
+    }
+
+    /**
+     * Get the scheduler results are delivered on
+     *
+     * @return The {@link Scheduler} or null if results are delivered on the thread that
+     * produced them
+     */
+    public Scheduler getResultScheduler() {
+        return resultScheduler;
+    }
+
+    public int getMaxPendingRequests() {
+        return maxPendingRequests;
+    }
+
+    public MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * @return The policy used to hedge slow requests or null if requests are not hedged
+     */
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * @return The maximum no. of requests per second or 0 if requests are not rate limited
+     */
+    public double getRateLimit() {
+        return rateLimit;
+    }
+
+    public int getRateLimitBurstSize() {
+        return rateLimitBurstSize;
+    }
+
+    public boolean isFailFastWhenRateLimited() {
+        return isFailFastWhenRateLimited;
+    }
+
+    public boolean isWaitForConnectivity() {
+        return isWaitForConnectivity;
+    }
+
+    public long getConnectivityTimeoutMillis() {
+        return connectivityTimeoutMillis;
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    public long getCircuitBreakerOpenDurationMillis() {
+        return circuitBreakerOpenDurationMillis;
+    }
+
+    /**
+     * Create the default executor for network requests. It is bounded to a few daemon threads,
+     * which are released when idle, as Play Store throttles clients opening too many connections
+     * anyway.
+     *
+     * @return The {@link Executor} to run network requests on
+     */
+    private static Executor createNetworkExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_NETWORK_THREADS,
+                DEFAULT_NETWORK_THREADS, NETWORK_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable,
+                        NETWORK_THREAD_NAME + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public static class Builder {
+        private String baseUrl = DEFAULT_BASE_URL;
+        private int memoryCacheSize = DEFAULT_MEMORY_CACHE_SIZE;
+        private long diskCacheSize;
+        private long defaultCacheTtl = DEFAULT_CACHE_TTL;
+        private Map<PlayField, Long> cacheTtls = new EnumMap<>(PlayField.class);
+        private long maxStaleness;
+        private HttpTransport httpTransport;
+        private Executor networkExecutor;
+        private Scheduler networkScheduler;
+        private Scheduler parseScheduler;
+        private Scheduler resultScheduler;
+        private int maxPendingRequests = DEFAULT_MAX_PENDING_REQUESTS;
+        private MetricsListener metricsListener;
+        private RetryPolicy retryPolicy;
+        private HedgingPolicy hedgingPolicy;
+        private double rateLimit;
+        private int rateLimitBurstSize;
+        private boolean isFailFastWhenRateLimited;
+        private int circuitBreakerFailureThreshold = DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+        private long circuitBreakerOpenDurationMillis = DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION;
+        private boolean isWaitForConnectivity;
+        private long connectivityTimeoutMillis = DEFAULT_CONNECTIVITY_TIMEOUT;
+
+        /**
+         * Set the url the package name is appended to in order to fetch the page of a package,
+         * e.g. to run against a local stand-in server while load testing. Play Store is used by
+         * default. The url returned by {@link RxMagneto#grabUrl(String)} is built from it too.
+         *
+         * @param baseUrl The base url ending with the package name query parameter
+         * @return The builder
+         */
+        public Builder setBaseUrl(String baseUrl) {
+            if (baseUrl == null || baseUrl.isEmpty()) {
+                throw new IllegalArgumentException("Base url cannot be empty");
+            }
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        /**
+         * Set the maximum estimated size of the in-memory cache. Use 0 to disable caching.
+         *
+         * @param memoryCacheSize The maximum size in bytes
+         * @return The builder
+         */
+        public Builder setMemoryCacheSize(int memoryCacheSize) {
+            if (memoryCacheSize < 0) {
+                throw new IllegalArgumentException("Memory cache size cannot be negative");
+            }
+            this.memoryCacheSize = memoryCacheSize;
+            return this;
+        }
+
+        /**
+         * Set the maximum size of the persistent disk cache. Snapshots stored on disk survive
+         * app restarts and are revalidated with conditional requests, so unchanged pages are
+         * not downloaded again. The disk cache is disabled by default.
+         *
+         * @param diskCacheSize The maximum size in bytes, or 0 to disable it
+         * @return The builder
+         */
+        public Builder setDiskCacheSize(long diskCacheSize) {
+            if (diskCacheSize < 0) {
+                throw new IllegalArgumentException("Disk cache size cannot be negative");
+            }
+            this.diskCacheSize = diskCacheSize;
+            return this;
+        }
+
+        /**
+         * Set the time to live of every field that has no specific time to live of its own
+         *
+         * @param duration The time to live
+         * @param unit     The unit of the duration
+         * @return The builder
+         */
+        public Builder setDefaultCacheTtl(long duration, TimeUnit unit) {
+            this.defaultCacheTtl = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * Set the time to live of a particular field, e.g. the app rating can be kept for longer
+         * than the version
+         *
+         * @param field    A particular field
+         * @param duration The time to live
+         * @param unit     The unit of the duration
+         * @return The builder
+         */
+        public Builder setCacheTtl(PlayField field, long duration, TimeUnit unit) {
+            cacheTtls.put(field, unit.toMillis(duration));
+            return this;
+        }
+
+        /**
+         * Serve cached values for a while after they have expired instead of waiting for the
+         * network (stale-while-revalidate). A value that has been expired for no longer than
+         * the staleness window is returned at once and refreshed in the background, so that
+         * the next call gets the fresh value. By default expired values are never served.
+         *
+         * @param duration The staleness window
+         * @param unit     The unit of the duration
+         * @return The builder
+         */
+        public Builder setMaxStaleness(long duration, TimeUnit unit) {
+            if (duration < 0) {
+                throw new IllegalArgumentException("Staleness must not be negative");
+            }
+            this.maxStaleness = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * Set the transport used for all the requests to Play Store. By default a
+         * {@link UrlConnectionHttpTransport} keeping connections alive is used.
+         *
+         * @param httpTransport The {@link HttpTransport} to use
+         * @return The builder
+         */
+        public Builder setHttpTransport(HttpTransport httpTransport) {
+            this.httpTransport = httpTransport;
+            return this;
+        }
+
+        /**
+         * Set the executor network requests are run on. By default a bounded pool of 4 daemon
+         * threads is used. It is ignored if a network scheduler is set.
+         *
+         * @param networkExecutor The {@link Executor} to use
+         * @return The builder
+         */
+        public Builder setNetworkExecutor(Executor networkExecutor) {
+            this.networkExecutor = networkExecutor;
+            return this;
+        }
+
+        /**
+         * Set the scheduler network requests are run on, e.g. to share a pool the app already
+         * has. Takes precedence over the network executor.
+         *
+         * @param networkScheduler The {@link Scheduler} to use
+         * @return The builder
+         */
+        public Builder setNetworkScheduler(Scheduler networkScheduler) {
+            this.networkScheduler = networkScheduler;
+            return this;
+        }
+
+        /**
+         * Set the scheduler used to post-process fetched information, e.g. joining a changelog.
+         * Pages are parsed while they are being downloaded, so by default no extra thread hop
+         * is made.
+         *
+         * @param parseScheduler The {@link Scheduler} to use
+         * @return The builder
+         */
+        public Builder setParseScheduler(Scheduler parseScheduler) {
+            this.parseScheduler = parseScheduler;
+            return this;
+        }
+
+        /**
+         * Set the scheduler results are delivered on, e.g. the main thread. By default results
+         * are delivered on the thread that produced them.
+         *
+         * @param resultScheduler The {@link Scheduler} to use
+         * @return The builder
+         */
+        public Builder setResultScheduler(Scheduler resultScheduler) {
+            this.resultScheduler = resultScheduler;
+            return this;
+        }
+
+        /**
+         * Set the maximum no. of requests that can be pending at the same time. Any request
+         * beyond it fails immediately instead of queueing up behind the others.
+         *
+         * @param maxPendingRequests The maximum no. of pending requests
+         * @return The builder
+         */
+        public Builder setMaxPendingRequests(int maxPendingRequests) {
+            if (maxPendingRequests <= 0) {
+                throw new IllegalArgumentException("Max pending requests must be positive");
+            }
+            this.maxPendingRequests = maxPendingRequests;
+            return this;
+        }
+
+        /**
+         * Set a listener notified with the timings and outcome of every request, e.g. to
+         * report them to an analytics backend
+         *
+         * @param metricsListener The {@link MetricsListener} to notify
+         * @return The builder
+         */
+        public Builder setMetricsListener(MetricsListener metricsListener) {
+            this.metricsListener = metricsListener;
+            return this;
+        }
+
+        /**
+         * Set the policy used to retry requests failing with transient errors. By default a
+         * request is retried up to 3 times with a jittered exponential backoff. Use
+         * {@link RetryPolicy#NONE} to disable retrying.
+         *
+         * @param retryPolicy The {@link RetryPolicy} to use
+         * @return The builder
+         */
+        public Builder setRetryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Hedge slow fetches of Play Store pages: a fetch that has not received its response
+         * headers within the delay of the policy is sent a second time and the first response
+         * to arrive is used, while the other one is cancelled. The no. of hedges is bounded by
+         * the budget of the policy. Requests are not hedged by default.
+         *
+         * @param hedgingPolicy The {@link HedgingPolicy} to use
+         * @return The builder
+         */
+        public Builder setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+            this.hedgingPolicy = hedgingPolicy;
+            return this;
+        }
+
+        /**
+         * Limit the rate of the requests made to Play Store, shared by all the requests and
+         * retries. Requests served from the cache are not limited. Requests are not rate limited
+         * by default.
+         *
+         * @param requestsPerSecond The steady no. of requests per second allowed
+         * @param burstSize         The no. of requests that may be made back to back after a
+         *                          quiet period
+         * @return The builder
+         */
+        public Builder setRateLimit(double requestsPerSecond, int burstSize) {
+            if (requestsPerSecond <= 0 || burstSize < 1) {
+                throw new IllegalArgumentException("Rate and burst size must be positive");
+            }
+            this.rateLimit = requestsPerSecond;
+            this.rateLimitBurstSize = burstSize;
+            return this;
+        }
+
+        /**
+         * Set whether a request exceeding the rate limit fails immediately with
+         * {@link RxMagnetoErrorCodeMap#ERROR_RATE_LIMITED} instead of waiting for its turn. By
+         * default it waits, without blocking a thread.
+         *
+         * @param isFailFastWhenRateLimited True to fail immediately
+         * @return The builder
+         */
+        public Builder setFailFastWhenRateLimited(boolean isFailFastWhenRateLimited) {
+            this.isFailFastWhenRateLimited = isFailFastWhenRateLimited;
+            return this;
+        }
+
+        /**
+         * Set whether requests made while the device is offline wait until it is connected
+         * again instead of failing immediately with a
+         * {@link com.aritraroy.rxmagneto.exceptions.NetworkNotAvailableException}. The waiting
+         * requests do not hold a thread and are released together once the device is
+         * connected, still bounded by the network pool and the rate limit. Answers available in
+         * the cache are served while offline either way. A request still offline after the
+         * connectivity timeout fails, see {@link #setConnectivityTimeout(long, TimeUnit)}.
+         *
+         * @param isWaitForConnectivity True to wait for connectivity
+         * @return The builder
+         */
+        public Builder setWaitForConnectivity(boolean isWaitForConnectivity) {
+            this.isWaitForConnectivity = isWaitForConnectivity;
+            return this;
+        }
+
+        /**
+         * Set how long a request waits for connectivity before failing with a
+         * {@link com.aritraroy.rxmagneto.exceptions.NetworkNotAvailableException}, 30 seconds
+         * by default. It only applies when waiting for connectivity, see
+         * {@link #setWaitForConnectivity(boolean)}.
+         *
+         * @param timeout The maximum time to wait
+         * @param unit    The unit of the timeout
+         * @return The builder
+         */
+        public Builder setConnectivityTimeout(long timeout, TimeUnit unit) {
+            if (timeout <= 0) {
+                throw new IllegalArgumentException("Timeout must be positive");
+            }
+            this.connectivityTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Configure the circuit breaker of every host. After {@code failureThreshold}
+         * consecutive failures, requests to the host fail fast for {@code openDuration} before
+         * a single trial request is let through. By default it opens after 5 failures for 30
+         * seconds.
+         *
+         * @param failureThreshold The no. of consecutive failures opening the circuit, 0 to
+         *                         never open it
+         * @param openDuration     The time the circuit stays open
+         * @param unit             The unit of the open duration
+         * @return The builder
+         */
+        public Builder setCircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+            if (failureThreshold < 0) {
+                throw new IllegalArgumentException("Failure threshold cannot be negative");
+            }
+            this.circuitBreakerFailureThreshold = failureThreshold;
+            this.circuitBreakerOpenDurationMillis = unit.toMillis(openDuration);
+            return this;
+        }
+
+        public RxMagnetoConfig build() {
+            return new RxMagnetoConfig(this);
+        }
+    }
+}
@@ -15,7 +15,12 @@ public enum RxMagnetoErrorCodeMap {
     ERROR_CONTENT_RATING(108),
     ERROR_APP_RATING(109),
     ERROR_APP_RATING_COUNT(110),
-    ERROR_CHANGELOG(111);
+    ERROR_CHANGELOG(111),
+    ERROR_PACKAGE_INFO(112),
+    ERROR_QUEUE_FULL(113),
+    ERROR_WATCH(114),
+    ERROR_CIRCUIT_OPEN(115),
+    ERROR_RATE_LIMITED(116);
 
     private int errorCode;
 
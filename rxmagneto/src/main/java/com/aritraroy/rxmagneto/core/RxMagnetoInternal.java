@@ -1,31 +1,67 @@
 package com.aritraroy.rxmagneto.core;
 
-import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_APP_RATING;
-import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_APP_RATING_COUNT;
-import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_CONTENT_RATING;
-import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_DOWNLOADS;
-import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_LAST_PUBLISHED_DATE;
-import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_OS_REQUIREMENTS;
-import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_VERSION;
-import static com.aritraroy.rxmagneto.util.Connectivity.isConnected;
+import static com.aritraroy.rxmagneto.core.RxMagnetoErrorCodeMap.ERROR_CIRCUIT_OPEN;
+import static com.aritraroy.rxmagneto.core.RxMagnetoErrorCodeMap.ERROR_QUEUE_FULL;
+import static com.aritraroy.rxmagneto.core.RxMagnetoErrorCodeMap.ERROR_RATE_LIMITED;
 
 import android.content.Context;
+import android.os.SystemClock;
 
 import com.aritraroy.rxmagneto.R;
+import com.aritraroy.rxmagneto.cache.DiskPlayPackageInfoCache;
+import com.aritraroy.rxmagneto.cache.PlayPackageInfoCache;
+import com.aritraroy.rxmagneto.domain.PlayField;
 import com.aritraroy.rxmagneto.domain.PlayPackageInfo;
+import com.aritraroy.rxmagneto.exceptions.CircuitOpenException;
+import com.aritraroy.rxmagneto.exceptions.HttpStatusException;
 import com.aritraroy.rxmagneto.exceptions.NetworkNotAvailableException;
 import com.aritraroy.rxmagneto.exceptions.RxMagnetoException;
-
-import org.jsoup.Jsoup;
-import org.jsoup.select.Elements;
-
+import com.aritraroy.rxmagneto.extractor.PlayPageExtractor;
+import com.aritraroy.rxmagneto.metrics.HistogramMetricsListener;
+import com.aritraroy.rxmagneto.metrics.MetricsListener;
+import com.aritraroy.rxmagneto.metrics.Operation;
+import com.aritraroy.rxmagneto.metrics.Outcome;
+import com.aritraroy.rxmagneto.metrics.RequestMetrics;
+import com.aritraroy.rxmagneto.network.CancellationSignal;
+import com.aritraroy.rxmagneto.network.CircuitBreaker;
+import com.aritraroy.rxmagneto.network.ConnectivityMonitor;
+import com.aritraroy.rxmagneto.network.HttpRequest;
+import com.aritraroy.rxmagneto.network.HttpResponse;
+import com.aritraroy.rxmagneto.network.HttpTransport;
+import com.aritraroy.rxmagneto.network.RetryPolicy;
+import com.aritraroy.rxmagneto.network.TokenBucket;
+
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Arrays;
-
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableEmitter;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.SingleTransformer;
 
 /**
  * The internal class to facilitate fetching of Play Store information
@@ -34,207 +70,933 @@ public class RxMagnetoInternal {
 
     private static final int DEFAULT_TIMEOUT = 5000;
     private static final String DEFAULT_REFERRER = "http://www.google.com";
-    static final String MARKET_PLAY_STORE_URL = "https://play.google.com/store/apps/details?id=";
+    private static final String DEFAULT_USER_AGENT = "Mozilla/5.0 (Windows NT 6.1; WOW64) "
+            + "AppleWebKit/537.36 (KHTML, like Gecko) Chrome/53.0.2785.143 Safari/537.36";
+    private static final String DEFAULT_CHARSET = "UTF-8";
+    private static final String CHARSET_PARAMETER = "charset=";
+    private static final String DISK_CACHE_DIRECTORY = "rxmagneto";
+    private static final String HEADER_USER_AGENT = "User-Agent";
+    private static final String HEADER_REFERER = "Referer";
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int MAX_VERIFIED_PACKAGES = 1024;
+    private static final Set<PlayField> ALL_FIELDS =
+            Collections.unmodifiableSet(EnumSet.allOf(PlayField.class));
 
     private Context context;
+    private final PlayPackageInfoCache playPackageInfoCache;
+    private final DiskPlayPackageInfoCache diskPlayPackageInfoCache;
+    private final HttpTransport httpTransport;
+    private final String baseUrl;
+    private final Scheduler networkScheduler;
+    private final Scheduler parseScheduler;
+    private final Scheduler resultScheduler;
+    private final int maxPendingRequests;
+    private final RetryPolicy retryPolicy;
+    private final RequestHedger requestHedger;
+    private final TokenBucket rateLimiter;
+    private final boolean isFailFastWhenRateLimited;
+    private final int circuitBreakerFailureThreshold;
+    private final long circuitBreakerOpenDurationMillis;
+    private final ConnectivityMonitor connectivityMonitor;
+    private final boolean isWaitForConnectivity;
+    private final long connectivityTimeoutMillis;
+    private final ConcurrentHashMap<String, CircuitBreaker> circuitBreakers =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger pendingRequests = new AtomicInteger();
+    private final HistogramMetricsListener histogramMetricsListener =
+            new HistogramMetricsListener();
+    private final MetricsListener metricsListener;
+    private final long verificationTtl;
+    private final LinkedHashMap<String, Long> verifiedPackages =
+            new LinkedHashMap<String, Long>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    return size() > MAX_VERIFIED_PACKAGES;
+                }
+            };
+    private final ConcurrentHashMap<String, Single<PlayPackageInfo>> inFlightRequests =
+            new ConcurrentHashMap<>();
 
-    RxMagnetoInternal(Context context) {
+    RxMagnetoInternal(Context context, RxMagnetoConfig config) {
         this.context = context;
+        this.playPackageInfoCache = new PlayPackageInfoCache(config);
+        this.diskPlayPackageInfoCache = config.getDiskCacheSize() > 0
+                ? new DiskPlayPackageInfoCache(
+                new File(context.getCacheDir(), DISK_CACHE_DIRECTORY),
+                config.getDiskCacheSize())
+                : null;
+        this.httpTransport = config.getHttpTransport();
+        this.baseUrl = config.getBaseUrl();
+        this.networkScheduler = config.getNetworkScheduler();
+        this.parseScheduler = config.getParseScheduler();
+        this.resultScheduler = config.getResultScheduler();
+        this.maxPendingRequests = config.getMaxPendingRequests();
+        this.metricsListener = config.getMetricsListener();
+        this.retryPolicy = config.getRetryPolicy();
+        this.requestHedger = config.getHedgingPolicy() != null
+                ? new RequestHedger(config.getHedgingPolicy(), networkScheduler)
+                : null;
+        this.rateLimiter = config.getRateLimit() > 0
+                ? new TokenBucket(config.getRateLimit(), config.getRateLimitBurstSize())
+                : null;
+        this.isFailFastWhenRateLimited = config.isFailFastWhenRateLimited();
+        this.circuitBreakerFailureThreshold = config.getCircuitBreakerFailureThreshold();
+        this.circuitBreakerOpenDurationMillis = config.getCircuitBreakerOpenDurationMillis();
+        this.verificationTtl = getMinCacheTtl(config);
+        this.connectivityMonitor = new ConnectivityMonitor(context);
+        this.isWaitForConnectivity = config.isWaitForConnectivity();
+        this.connectivityTimeoutMillis = config.getConnectivityTimeoutMillis();
+        connectivityMonitor.start();
     }
 
-    Single<PlayPackageInfo> getPlayPackageInfoWithValidation(final String packageName) {
-        return Single.create(emitter -> {
-            HttpURLConnection httpURLConnection = null;
-            try {
-                String packageUrl = MARKET_PLAY_STORE_URL + packageName;
-                URL url = new URL(packageUrl);
+    /**
+     * Stop listening to the system for connectivity changes, once this instance is replaced
+     */
+    void release() {
+        connectivityMonitor.stop();
+    }
 
-                httpURLConnection = (HttpURLConnection) url.openConnection();
-                httpURLConnection.setRequestMethod("GET");
+    PlayPackageInfoCache getPlayPackageInfoCache() {
+        return playPackageInfoCache;
+    }
 
-                if (!isConnected(context)) {
-                    emitter.onError(new NetworkNotAvailableException(
-                            context.getString(R.string.message_internet_not_available)));
-                    return;
-                }
+    String getPackageUrl(String packageName) {
+        return baseUrl + packageName;
+    }
 
-                httpURLConnection.connect();
-                boolean isVerified = httpURLConnection.getResponseCode() == HttpURLConnection.HTTP_OK;
+    HistogramMetricsListener getHistogramMetricsListener() {
+        return histogramMetricsListener;
+    }
 
-                if (!isVerified) {
-                    emitter.onError(new RxMagnetoException(RxMagnetoErrorCodeMap.ERROR_GENERIC.getErrorCode(),
-                            context.getString(R.string.message_package_url_malformed)));
-                    return;
-                }
+    Scheduler getParseScheduler() {
+        return parseScheduler;
+    }
 
-                boolean isUrlValid = httpURLConnection.getResponseCode() == HttpURLConnection.HTTP_OK;
-                PlayPackageInfo playPackageInfo = new PlayPackageInfo.Builder(packageName, packageUrl)
-                        .setIsUrlValid(isUrlValid)
-                        .build();
+    /**
+     * Run a request on the network scheduler and deliver its result on the result scheduler,
+     * if one is configured
+     *
+     * @return The transformer to compose a request with
+     */
+    <T> SingleTransformer<T, T> applySchedulers() {
+        return upstream -> {
+            Single<T> single = upstream.compose(this.<T>applyNetworkScheduler());
+            return resultScheduler != null ? single.observeOn(resultScheduler) : single;
+        };
+    }
 
-                emitter.onSuccess(playPackageInfo);
-            } catch (MalformedURLException e) {
-                emitter.onError(new RxMagnetoException(RxMagnetoErrorCodeMap.ERROR_GENERIC.getErrorCode(),
-                        context.getString(R.string.message_package_url_malformed)));
-            } catch (IOException e) {
-                emitter.onError(e);
-            } finally {
-                if (httpURLConnection != null) {
-                    httpURLConnection.disconnect();
-                }
+    /**
+     * Run a request on the network scheduler. Requests beyond the maximum no. of pending
+     * requests fail immediately with {@link RxMagnetoErrorCodeMap#ERROR_QUEUE_FULL}.
+     *
+     * @return The transformer to compose a request with
+     */
+    <T> SingleTransformer<T, T> applyNetworkScheduler() {
+        return upstream -> Single.defer(() -> {
+            if (pendingRequests.incrementAndGet() > maxPendingRequests) {
+                pendingRequests.decrementAndGet();
+                return Single.<T>error(new RxMagnetoException(ERROR_QUEUE_FULL.getErrorCode(),
+                        context.getString(R.string.message_queue_full)));
             }
+            return upstream.subscribeOn(networkScheduler)
+                    .doFinally(pendingRequests::decrementAndGet);
         });
     }
 
-    Single<PlayPackageInfo> getPlayPackageInfoForTag(final String packageName,
-                                               final String tag) {
-        return Single.create(emitter -> {
-            try {
-                String packageUrl = MARKET_PLAY_STORE_URL + packageName;
+    <T> FlowableTransformer<T, T> applyResultScheduler() {
+        return upstream -> resultScheduler != null
+                ? upstream.observeOn(resultScheduler)
+                : upstream;
+    }
 
-                if (!isConnected(context)) {
-                    emitter.onError(new NetworkNotAvailableException(context
-                            .getString(R.string.message_internet_not_available)));
-                    return;
-                }
+    Single<PlayPackageInfo> getPlayPackageInfo(final String packageName) {
+        return getPlayPackageInfo(packageName, ALL_FIELDS);
+    }
 
-                String parsedData = Jsoup.connect(packageUrl)
-                        .timeout(DEFAULT_TIMEOUT)
-                        .ignoreHttpErrors(true)
-                        .referrer(DEFAULT_REFERRER)
-                        .get()
-                        .select("div[itemprop=" + tag + "]")
-                        .first()
-                        .ownText();
+    Single<PlayPackageInfo> getPlayPackageInfo(final String packageName, final PlayField field) {
+        return getPlayPackageInfo(packageName, EnumSet.of(field));
+    }
 
-                PlayPackageInfo.Builder builder = new PlayPackageInfo.Builder(packageName, packageUrl);
-                builder = updatePlayPackageInfoFromTag(builder, tag, parsedData);
+    /**
+     * Get the information of a package, served from the in-memory cache as long as all the
+     * requested fields are still fresh. A miss fetches and caches the complete snapshot, as the
+     * whole page has to be downloaded and parsed anyway. Within the configured staleness window
+     * an expired snapshot is served instead and refreshed in the background.
+     *
+     * @param packageName A particular package name
+     * @param fields      The fields the caller is interested in
+     * @return A Single emitting the {@link PlayPackageInfo}
+     */
+    Single<PlayPackageInfo> getPlayPackageInfo(final String packageName,
+                                               final Set<PlayField> fields) {
+        return Single.defer(() -> {
+            PlayPackageInfo cachedPlayPackageInfo = getCachedPlayPackageInfo(packageName, fields);
+            if (cachedPlayPackageInfo != null) {
+                return Single.just(cachedPlayPackageInfo);
+            }
 
-                emitter.onSuccess(builder.build());
-            } catch (Exception e) {
-                emitter.onError(e);
+            PlayPackageInfo stalePlayPackageInfo =
+                    playPackageInfoCache.getStale(packageName, fields);
+            if (stalePlayPackageInfo != null) {
+                reportMetrics(new RequestMetrics.Builder(Operation.FETCH, packageName)
+                        .setCacheHit(true));
+                refreshInBackground(packageName);
+                return Single.just(stalePlayPackageInfo);
             }
+            return getSharedPlayPackageInfo(packageName, ALL_FIELDS);
         });
     }
 
-    Single<PlayPackageInfo> getPlayPackageInfoWithAppRating(final String packageName) {
-        return Single.create(emitter -> {
-            try {
-                String packageUrl = MARKET_PLAY_STORE_URL + packageName;
+    /**
+     * Get a projection of the information of a package holding exactly the requested fields.
+     * The fields that are still fresh in the in-memory cache are served from there, only the
+     * missing ones are extracted from the page, which is read just until all of them have been
+     * found.
+     *
+     * @param packageName A particular package name
+     * @param fields      The fields to get
+     * @return A Single emitting the projected {@link PlayPackageInfo}
+     */
+    Single<PlayPackageInfo> getProjectedPlayPackageInfo(final String packageName,
+                                                        final Set<PlayField> fields) {
+        return Single.defer(() -> {
+            PlayPackageInfo cachedPlayPackageInfo = getCachedPlayPackageInfo(packageName, fields);
+            if (cachedPlayPackageInfo != null) {
+                return Single.just(cachedPlayPackageInfo.project(fields));
+            }
+
+            final PlayPackageInfo freshPlayPackageInfo =
+                    playPackageInfoCache.getFresh(packageName, fields);
+            Set<PlayField> missingFields = EnumSet.noneOf(PlayField.class);
+            missingFields.addAll(fields);
+            if (freshPlayPackageInfo != null) {
+                missingFields.removeAll(freshPlayPackageInfo.getFields());
+            }
+            return getSharedPlayPackageInfo(packageName, missingFields)
+                    .map(playPackageInfo -> (freshPlayPackageInfo != null
+                            ? freshPlayPackageInfo.merge(playPackageInfo)
+                            : playPackageInfo).project(fields));
+        });
+    }
+
+    /**
+     * Observe the information of a package. A fresh cached snapshot is emitted alone, while an
+     * expired one within the staleness window is emitted at once and followed by the refreshed
+     * snapshot. Without any usable snapshot in the cache only the fetched one is emitted.
+     *
+     * @param packageName A particular package name
+     * @param fields      The fields the caller is interested in
+     * @return A Flowable emitting one or two {@link PlayPackageInfo}
+     */
+    Flowable<PlayPackageInfo> observePlayPackageInfo(final String packageName,
+                                                     final Set<PlayField> fields) {
+        return Flowable.defer(() -> {
+            PlayPackageInfo cachedPlayPackageInfo = getCachedPlayPackageInfo(packageName, fields);
+            if (cachedPlayPackageInfo != null) {
+                return Flowable.just(cachedPlayPackageInfo);
+            }
+
+            Flowable<PlayPackageInfo> freshPlayPackageInfo =
+                    getSharedPlayPackageInfo(packageName, ALL_FIELDS)
+                    .compose(this.<PlayPackageInfo>applyNetworkScheduler())
+                    .toFlowable();
+            PlayPackageInfo stalePlayPackageInfo =
+                    playPackageInfoCache.getStale(packageName, fields);
+            if (stalePlayPackageInfo != null) {
+                reportMetrics(new RequestMetrics.Builder(Operation.FETCH, packageName)
+                        .setCacheHit(true));
+                return freshPlayPackageInfo.startWith(stalePlayPackageInfo);
+            }
+            return freshPlayPackageInfo;
+        });
+    }
+
+    private PlayPackageInfo getCachedPlayPackageInfo(String packageName, Set<PlayField> fields) {
+        PlayPackageInfo cachedPlayPackageInfo = playPackageInfoCache.get(packageName, fields);
+        if (cachedPlayPackageInfo != null) {
+            reportMetrics(new RequestMetrics.Builder(Operation.FETCH, packageName)
+                    .setCacheHit(true));
+        }
+        return cachedPlayPackageInfo;
+    }
 
-                if (!isConnected(context)) {
-                    emitter.onError(new NetworkNotAvailableException(context
-                            .getString(R.string.message_internet_not_available)));
-                    return;
+    /**
+     * Refresh the snapshot of a package without anyone waiting for it. The refresh joins the
+     * in-flight fetch of the package, if any, and its failures are only reported as metrics.
+     *
+     * @param packageName A particular package name
+     */
+    private void refreshInBackground(String packageName) {
+        getSharedPlayPackageInfo(packageName, ALL_FIELDS)
+                .compose(this.<PlayPackageInfo>applyNetworkScheduler())
+                .subscribe(playPackageInfo -> {
+                }, throwable -> {
+                });
+    }
+
+    /**
+     * Get the in-flight fetch of a package or start a new one. Concurrent subscribers for the
+     * same request url and fields share a single download and parse, and the entry is removed
+     * as soon as the fetch terminates so that later calls are served from the cache.
+     *
+     * @param packageName A particular package name
+     * @param fields      The fields to extract
+     * @return A Single emitting the freshly fetched {@link PlayPackageInfo}
+     */
+    private Single<PlayPackageInfo> getSharedPlayPackageInfo(final String packageName,
+                                                             final Set<PlayField> fields) {
+        final String packageUrl = getPackageUrl(packageName);
+        final String requestKey = fields.size() == ALL_FIELDS.size()
+                ? packageUrl
+                : packageUrl + '#' + fields;
+        Single<PlayPackageInfo> inFlightRequest = inFlightRequests.get(requestKey);
+        if (inFlightRequest != null) {
+            return inFlightRequest;
+        }
+
+        final AtomicReference<Single<PlayPackageInfo>> requestReference = new AtomicReference<>();
+        Single<PlayPackageInfo> request = this.<PlayPackageInfo>newHedgedRequest(
+                (emitter, cancellationSignal, responseListener) -> {
+            RequestMetrics.Builder metricsBuilder =
+                    new RequestMetrics.Builder(Operation.FETCH, packageName);
+            try {
+                if (!checkConnectivity(metricsBuilder)) {
+                    throw new NetworkNotAvailableException(context
+                            .getString(R.string.message_internet_not_available));
                 }
 
-                String parsedData = Jsoup.connect(packageUrl)
-                        .timeout(DEFAULT_TIMEOUT)
-                        .ignoreHttpErrors(true)
-                        .referrer(DEFAULT_REFERRER)
-                        .get()
-                        .select("div[class=" + TAG_PLAY_STORE_APP_RATING + "]")
-                        .first()
-                        .ownText();
+                DiskPlayPackageInfoCache.Entry diskEntry = diskPlayPackageInfoCache != null
+                        ? diskPlayPackageInfoCache.get(packageName)
+                        : null;
+                PlayPackageInfo playPackageInfo = fetchPlayPackageInfo(packageName, packageUrl,
+                        diskEntry, fields, cancellationSignal, responseListener, metricsBuilder)
+                        .getPlayPackageInfo();
+                reportMetrics(metricsBuilder, cancellationSignal, null);
+                emitter.onSuccess(playPackageInfo);
+            } catch (Exception e) {
+                reportMetrics(metricsBuilder, cancellationSignal, e);
+                emitter.tryOnError(e);
+            }
+        })
+                .doFinally(() -> inFlightRequests.remove(requestKey, requestReference.get()))
+                .toObservable()
+                .share()
+                .singleOrError();
+        requestReference.set(request);
+
+        inFlightRequest = inFlightRequests.putIfAbsent(requestKey, request);
+        return inFlightRequest != null ? inFlightRequest : request;
+    }
 
-                PlayPackageInfo.Builder builder = new PlayPackageInfo.Builder(packageName, packageUrl);
-                builder = updatePlayPackageInfoFromTag(builder, TAG_PLAY_STORE_APP_RATING, parsedData);
+    Single<PlayPackageInfo> getPlayPackageInfoWithValidation(final String packageName) {
+        return this.<PlayPackageInfo>newRequest((emitter, cancellationSignal) -> {
+            RequestMetrics.Builder metricsBuilder =
+                    new RequestMetrics.Builder(Operation.VERIFY, packageName);
+            try {
+                String packageUrl = getPackageUrl(packageName);
+                if (isVerified(packageName)) {
+                    metricsBuilder.setCacheHit(true);
+                } else {
+                    if (!checkConnectivity(metricsBuilder)) {
+                        throw new NetworkNotAvailableException(context
+                                .getString(R.string.message_internet_not_available));
+                    }
+                    verifyPackageUrl(packageName, packageUrl, cancellationSignal,
+                            metricsBuilder);
+                }
 
-                emitter.onSuccess(builder.build());
+                reportMetrics(metricsBuilder, cancellationSignal, null);
+                emitter.onSuccess(new PlayPackageInfo.Builder(packageName, packageUrl)
+                        .setIsUrlValid(true)
+                        .setFields(EnumSet.noneOf(PlayField.class))
+                        .build());
             } catch (Exception e) {
-                emitter.onError(e);
+                reportMetrics(metricsBuilder, cancellationSignal, e);
+                emitter.tryOnError(e);
             }
         });
     }
 
-    Single<PlayPackageInfo> getPlayPackageInfoWithAppRatingsCount(final String packageName) {
-        return Single.create(emitter -> {
-            try {
-                String packageUrl = MARKET_PLAY_STORE_URL + packageName;
+    private void verifyPackageUrl(String packageName, String packageUrl,
+                                  CancellationSignal cancellationSignal,
+                                  RequestMetrics.Builder metricsBuilder)
+            throws IOException, RxMagnetoException {
+        HttpResponse httpResponse = null;
+        try {
+            long requestStartNanos = System.nanoTime();
+            httpResponse = execute(newRequestBuilder(packageUrl)
+                    .setMethod(HttpRequest.METHOD_HEAD)
+                    .setCancellationSignal(cancellationSignal)
+                    .build());
+            recordResponseMetrics(metricsBuilder, httpResponse,
+                    System.nanoTime() - requestStartNanos);
+            if (httpResponse.getStatusCode() != HttpURLConnection.HTTP_OK) {
+                throw newHttpStatusException(packageName, httpResponse);
+            }
+            setVerified(packageName);
+        } catch (MalformedURLException e) {
+            throw new RxMagnetoException(RxMagnetoErrorCodeMap.ERROR_GENERIC.getErrorCode(),
+                    context.getString(R.string.message_package_url_malformed));
+        } finally {
+            closeQuietly(httpResponse);
+        }
+    }
 
-                if (!isConnected(context)) {
-                    emitter.onError(new NetworkNotAvailableException(context
-                            .getString(R.string.message_internet_not_available)));
-                    return;
+    /**
+     * Revalidate a previously fetched snapshot of a package. The request is made conditional
+     * using the validators of the snapshot, or of the snapshot stored on disk if there is none,
+     * so an unchanged page is not downloaded again.
+     *
+     * @param packageName   A particular package name
+     * @param previousEntry The previously fetched snapshot, if any
+     * @return A Single emitting the latest snapshot, which is the previous one if the page has
+     * not been modified
+     */
+    Single<DiskPlayPackageInfoCache.Entry> revalidatePlayPackageInfo(
+            final String packageName, final DiskPlayPackageInfoCache.Entry previousEntry) {
+        return this.<DiskPlayPackageInfoCache.Entry>newRequest((emitter, cancellationSignal) -> {
+            RequestMetrics.Builder metricsBuilder =
+                    new RequestMetrics.Builder(Operation.REVALIDATE, packageName);
+            try {
+                if (!checkConnectivity(metricsBuilder)) {
+                    throw new NetworkNotAvailableException(context
+                            .getString(R.string.message_internet_not_available));
                 }
 
-                String parsedData = Jsoup.connect(packageUrl)
-                        .timeout(DEFAULT_TIMEOUT)
-                        .ignoreHttpErrors(true)
-                        .referrer(DEFAULT_REFERRER)
-                        .get()
-                        .select("span[class=" + TAG_PLAY_STORE_APP_RATING_COUNT + "]")
-                        .first()
-                        .ownText();
-
-                PlayPackageInfo.Builder builder = new PlayPackageInfo.Builder(packageName, packageUrl);
-                builder = updatePlayPackageInfoFromTag(builder, TAG_PLAY_STORE_APP_RATING_COUNT, parsedData);
-                emitter.onSuccess(builder.build());
+                DiskPlayPackageInfoCache.Entry entry = previousEntry;
+                if (entry == null && diskPlayPackageInfoCache != null) {
+                    entry = diskPlayPackageInfoCache.get(packageName);
+                }
+                DiskPlayPackageInfoCache.Entry latestEntry = fetchPlayPackageInfo(packageName,
+                        getPackageUrl(packageName), entry, ALL_FIELDS, cancellationSignal, null,
+                        metricsBuilder);
+                reportMetrics(metricsBuilder, cancellationSignal, null);
+                emitter.onSuccess(latestEntry);
             } catch (Exception e) {
-                emitter.onError(e);
+                reportMetrics(metricsBuilder, cancellationSignal, e);
+                emitter.tryOnError(e);
             }
         });
     }
 
-    Single<PlayPackageInfo> getPlayPackageInfoWithRecentChangelogArray(final String packageName) {
-        return Single.create(emitter -> {
+    /**
+     * Stream the changelog entries of a package. Fresh cached entries are emitted right away,
+     * otherwise the page is downloaded and every entry is emitted as soon as it has been read.
+     * Reading stops as soon as the downstream cancels, e.g. after {@code take(n)}, so the rest
+     * of the page is neither downloaded nor parsed. As a partially read page yields no complete
+     * snapshot, streamed entries are not cached and the stream is not retried.
+     *
+     * @param packageName A particular package name
+     * @return A Flowable emitting the changelog entries
+     */
+    Flowable<String> streamRecentChangelog(final String packageName) {
+        return Flowable.defer(() -> {
+            PlayPackageInfo cachedPlayPackageInfo = getCachedPlayPackageInfo(packageName,
+                    EnumSet.of(PlayField.CHANGELOG));
+            if (cachedPlayPackageInfo != null) {
+                return Flowable.fromIterable(cachedPlayPackageInfo.getChangelogArray());
+            }
+
+            // Take a token of the rate limiter before the stream starts
+            return awaitConnectivity(rateLimited(Single.just(packageName)))
+                    .flatMapPublisher(ignored -> Flowable.<String>create(emitter -> {
+                        CancellationSignal cancellationSignal = new CancellationSignal();
+                        emitter.setCancellable(cancellationSignal::cancel);
+                        RequestMetrics.Builder metricsBuilder =
+                                new RequestMetrics.Builder(Operation.FETCH, packageName);
+                        try {
+                            if (!checkConnectivity(metricsBuilder)) {
+                                throw new NetworkNotAvailableException(context
+                                        .getString(R.string.message_internet_not_available));
+                            }
+                            streamRecentChangelog(packageName, emitter, cancellationSignal,
+                                    metricsBuilder);
+                            reportMetrics(metricsBuilder, cancellationSignal, null);
+                            emitter.onComplete();
+                        } catch (Exception e) {
+                            reportMetrics(metricsBuilder, cancellationSignal, e);
+                            emitter.tryOnError(e);
+                        }
+                    }, BackpressureStrategy.BUFFER)
+                            .subscribeOn(networkScheduler));
+        });
+    }
+
+    private void streamRecentChangelog(String packageName, final FlowableEmitter<String> emitter,
+                                       CancellationSignal cancellationSignal,
+                                       RequestMetrics.Builder metricsBuilder)
+            throws IOException, RxMagnetoException {
+        String packageUrl = getPackageUrl(packageName);
+        HttpResponse httpResponse = null;
+        long requestNanos = RequestMetrics.UNKNOWN;
+        try {
+            long requestStartNanos = System.nanoTime();
+            httpResponse = execute(newRequestBuilder(packageUrl)
+                    .setCancellationSignal(cancellationSignal)
+                    .build());
+            requestNanos = System.nanoTime() - requestStartNanos;
+            if (httpResponse.getStatusCode() != HttpURLConnection.HTTP_OK) {
+                throw newHttpStatusException(packageName, httpResponse);
+            }
+            setVerified(packageName);
+
+            Reader reader = new InputStreamReader(httpResponse.getBody(),
+                    getCharset(httpResponse.getHeader(HEADER_CONTENT_TYPE)));
+            long bodyStartNanos = System.nanoTime();
+            new PlayPageExtractor(EnumSet.of(PlayField.CHANGELOG)).extract(reader,
+                    new PlayPackageInfo.Builder(packageName, packageUrl), entry -> {
+                        emitter.onNext(entry);
+                        return !emitter.isCancelled();
+                    });
+            metricsBuilder.setExtractNanos(Math.max(0, System.nanoTime() - bodyStartNanos
+                    - httpResponse.getDownloadNanos()));
+        } catch (MalformedURLException e) {
+            throw new RxMagnetoException(RxMagnetoErrorCodeMap.ERROR_GENERIC.getErrorCode(),
+                    context.getString(R.string.message_package_url_malformed));
+        } finally {
+            if (httpResponse != null) {
+                recordResponseMetrics(metricsBuilder, httpResponse, requestNanos);
+            }
+            closeQuietly(httpResponse);
+        }
+    }
+
+    /**
+     * Download the Play Store page of a package and extract its fields while it is being read.
+     * The page is validated using the status code of the very same response, so no separate
+     * verification request is needed. If a previous snapshot of the package is known, the
+     * request is made conditional and the snapshot is reused when Play Store reports that the
+     * page has not been modified. The result is stored in the in-memory cache and, if all the
+     * fields have been extracted, in the disk cache.
+     *
+     * @param packageName    The package name to fetch
+     * @param packageUrl     The Play Store url of the package
+     * @param previousEntry  The previous snapshot of the package with its validators, if any
+     * @param fields         The fields to extract, the page is read only until all are found
+     * @param cancellationSignal The signal aborting the download once the request is disposed
+     * @param responseListener   Notified once the response headers have arrived, if not null
+     * @param metricsBuilder The metrics of the request to record the phases of the fetch in
+     * @return The latest snapshot of the package along with its validators
+     * @throws IOException        If the page could not be downloaded
+     * @throws RxMagnetoException If Play Store did not respond with the package page
+     */
+    private DiskPlayPackageInfoCache.Entry fetchPlayPackageInfo(
+            String packageName, String packageUrl, DiskPlayPackageInfoCache.Entry previousEntry,
+            Set<PlayField> fields, CancellationSignal cancellationSignal,
+            RequestHedger.ResponseListener responseListener,
+            RequestMetrics.Builder metricsBuilder) throws IOException, RxMagnetoException {
+        HttpRequest.Builder requestBuilder = newRequestBuilder(packageUrl)
+                .setCancellationSignal(cancellationSignal);
+        if (previousEntry != null) {
+            if (previousEntry.getETag() != null) {
+                requestBuilder.setHeader(HEADER_IF_NONE_MATCH, previousEntry.getETag());
+            }
+            if (previousEntry.getLastModified() != null) {
+                requestBuilder.setHeader(HEADER_IF_MODIFIED_SINCE,
+                        previousEntry.getLastModified());
+            }
+        }
+
+        HttpResponse httpResponse = null;
+        long requestNanos = RequestMetrics.UNKNOWN;
+        try {
+            long requestStartNanos = System.nanoTime();
+            httpResponse = execute(requestBuilder.build());
+            requestNanos = System.nanoTime() - requestStartNanos;
+
+            int statusCode = httpResponse.getStatusCode();
+            if (responseListener != null) {
+                responseListener.onResponse(statusCode == HttpURLConnection.HTTP_OK
+                        && fields.size() == ALL_FIELDS.size());
+            }
+            if (previousEntry != null && statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                metricsBuilder.setOutcome(Outcome.NOT_MODIFIED);
+                setVerified(packageName);
+                playPackageInfoCache.put(previousEntry.getPlayPackageInfo());
+                return previousEntry;
+            }
+            if (statusCode != HttpURLConnection.HTTP_OK) {
+                throw newHttpStatusException(packageName, httpResponse);
+            }
+            setVerified(packageName);
+
+            Reader reader = new InputStreamReader(httpResponse.getBody(),
+                    getCharset(httpResponse.getHeader(HEADER_CONTENT_TYPE)));
+            PlayPackageInfo.Builder builder = new PlayPackageInfo.Builder(packageName, packageUrl)
+                    .setIsUrlValid(true);
+            long bodyStartNanos = System.nanoTime();
+            new PlayPageExtractor(fields).extract(reader, builder);
+            metricsBuilder.setExtractNanos(Math.max(0, System.nanoTime() - bodyStartNanos
+                    - httpResponse.getDownloadNanos()));
+            DiskPlayPackageInfoCache.Entry entry = new DiskPlayPackageInfoCache.Entry(
+                    builder.build(), httpResponse.getHeader(HEADER_ETAG),
+                    httpResponse.getHeader(HEADER_LAST_MODIFIED));
+
+            playPackageInfoCache.put(entry.getPlayPackageInfo());
+            if (diskPlayPackageInfoCache != null && fields.size() == ALL_FIELDS.size()) {
+                diskPlayPackageInfoCache.put(entry.getPlayPackageInfo(), entry.getETag(),
+                        entry.getLastModified());
+            }
+            return entry;
+        } catch (MalformedURLException e) {
+            throw new RxMagnetoException(RxMagnetoErrorCodeMap.ERROR_GENERIC.getErrorCode(),
+                    context.getString(R.string.message_package_url_malformed));
+        } finally {
+            if (httpResponse != null) {
+                recordResponseMetrics(metricsBuilder, httpResponse, requestNanos);
+            }
+            closeQuietly(httpResponse);
+        }
+    }
+
+    /**
+     * Create a request to Play Store. Every attempt of the request is rate limited and transient
+     * failures are retried. Disposing an attempt cancels its {@link CancellationSignal}, which
+     * aborts its connection right away.
+     *
+     * @param source The attempt of the request
+     * @return The request
+     */
+    private <T> Single<T> newRequest(final RequestSource<T> source) {
+        return withRetries(awaitConnectivity(rateLimited(newAttempt(source))));
+    }
+
+    /**
+     * Create a request to Play Store like {@link #newRequest(RequestSource)}, hedging every
+     * attempt of it according to the hedging policy, if any. A hedge takes its own token of the
+     * rate limiter.
+     *
+     * @param source The attempt of the request, reporting when its response headers arrive
+     * @return The request
+     */
+    private <T> Single<T> newHedgedRequest(final HedgedRequestSource<T> source) {
+        if (requestHedger == null) {
+            return newRequest((emitter, cancellationSignal) ->
+                    source.subscribe(emitter, cancellationSignal, null));
+        }
+        return withRetries(awaitConnectivity(rateLimited(requestHedger.<T>hedge(
+                responseListener -> newAttempt((emitter, cancellationSignal) ->
+                        source.subscribe(emitter, cancellationSignal, responseListener)),
+                this::rateLimited))));
+    }
+
+    /**
+     * Create a single attempt of a request, which cancels its {@link CancellationSignal} once
+     * it is disposed
+     *
+     * @param source The attempt of the request
+     * @return The attempt
+     */
+    private <T> Single<T> newAttempt(final RequestSource<T> source) {
+        return Single.<T>create(emitter -> {
+            CancellationSignal cancellationSignal = new CancellationSignal();
+            emitter.setCancellable(cancellationSignal::cancel);
+            source.subscribe(emitter, cancellationSignal);
+        });
+    }
+
+    /**
+     * Hold back an attempt of a request while the device is offline, if configured to do so.
+     * The attempt is subscribed to as soon as the device is connected again, before taking a
+     * token of the rate limiter, so that the requests released together are still spread out.
+     * If the device is still offline after the connectivity timeout, the attempt fails with a
+     * {@link NetworkNotAvailableException}, which is not retried.
+     *
+     * @param request The request to hold back
+     * @return The request waiting for connectivity
+     */
+    private <T> Single<T> awaitConnectivity(final Single<T> request) {
+        if (!isWaitForConnectivity) {
+            return request;
+        }
+        return Single.defer(() -> connectivityMonitor.isConnected()
+                ? request
+                : request.subscribeOn(networkScheduler)
+                .delaySubscription(connectivityMonitor.awaitConnected()
+                        .timeout(connectivityTimeoutMillis, TimeUnit.MILLISECONDS,
+                                Completable.error(() -> new NetworkNotAvailableException(context
+                                        .getString(R.string.message_internet_not_available))))));
+    }
+
+    /**
+     * Retry a request according to the retry policy. Every attempt runs on the network
+     * scheduler, while the backoff between attempts is waited on a timer instead of blocking a
+     * network thread.
+     *
+     * @param request The request to retry
+     * @return The request retrying its transient failures
+     */
+    private <T> Single<T> withRetries(Single<T> request) {
+        if (retryPolicy.getMaxRetries() == 0) {
+            return request;
+        }
+        return request.subscribeOn(networkScheduler)
+                .retryWhen(errors -> {
+                    final AtomicInteger retryCount = new AtomicInteger();
+                    return errors.flatMap(error -> {
+                        long delayMillis = retryPolicy.getRetryDelayMillis(
+                                retryCount.incrementAndGet(), error);
+                        return delayMillis >= 0
+                                ? Flowable.timer(delayMillis, TimeUnit.MILLISECONDS)
+                                : Flowable.<Long>error(error);
+                    });
+                });
+    }
+
+    /**
+     * Take a token of the rate limiter before every attempt of a request. Without a token the
+     * request either fails immediately with {@link RxMagnetoErrorCodeMap#ERROR_RATE_LIMITED} or
+     * is delayed on a timer until its reserved token is available, without blocking a thread.
+     *
+     * @param request The request to limit
+     * @return The rate limited request
+     */
+    private <T> Single<T> rateLimited(final Single<T> request) {
+        if (rateLimiter == null) {
+            return request;
+        }
+        return Single.defer(() -> {
+            if (isFailFastWhenRateLimited) {
+                return rateLimiter.tryAcquire()
+                        ? request
+                        : Single.<T>error(new RxMagnetoException(
+                        ERROR_RATE_LIMITED.getErrorCode(),
+                        context.getString(R.string.message_rate_limited)));
+            }
+            long waitNanos = rateLimiter.reserve();
+            return waitNanos > 0
+                    ? request.subscribeOn(networkScheduler)
+                    .delaySubscription(waitNanos, TimeUnit.NANOSECONDS)
+                    : request;
+        });
+    }
+
+    /**
+     * Execute a request unless the circuit breaker of its host is open. Failures to connect,
+     * 5xx and 429 responses count as failures of the host, any other response as a success.
+     * Canceled requests count as neither.
+     */
+    private HttpResponse execute(HttpRequest request) throws IOException, RxMagnetoException {
+        CircuitBreaker circuitBreaker = getCircuitBreaker(new URL(request.getUrl()).getHost());
+        if (!circuitBreaker.tryAcquire()) {
+            throw new CircuitOpenException(ERROR_CIRCUIT_OPEN.getErrorCode(),
+                    context.getString(R.string.message_circuit_open));
+        }
+
+        boolean isHealthy = false;
+        try {
+            HttpResponse httpResponse = httpTransport.execute(request);
+            int statusCode = httpResponse.getStatusCode();
+            isHealthy = statusCode != HTTP_TOO_MANY_REQUESTS
+                    && statusCode < HttpURLConnection.HTTP_INTERNAL_ERROR;
+            return httpResponse;
+        } finally {
+            CancellationSignal cancellationSignal = request.getCancellationSignal();
+            if (isHealthy) {
+                circuitBreaker.onSuccess();
+            } else if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+                circuitBreaker.onCancel();
+            } else {
+                circuitBreaker.onFailure();
+            }
+        }
+    }
+
+    private CircuitBreaker getCircuitBreaker(String host) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(host);
+        if (circuitBreaker == null) {
+            CircuitBreaker newCircuitBreaker = new CircuitBreaker(circuitBreakerFailureThreshold,
+                    circuitBreakerOpenDurationMillis, TimeUnit.MILLISECONDS);
+            circuitBreaker = circuitBreakers.putIfAbsent(host, newCircuitBreaker);
+            if (circuitBreaker == null) {
+                circuitBreaker = newCircuitBreaker;
+            }
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * Check if the url of a package has been verified recently. A verification is trusted for
+     * the shortest time to live of the memory cache, so a package removed from Play Store is
+     * not reported as valid for longer than its cached fields.
+     */
+    private boolean isVerified(String packageName) {
+        synchronized (verifiedPackages) {
+            Long verifiedAt = verifiedPackages.get(packageName);
+            if (verifiedAt == null) {
+                return false;
+            }
+            if (SystemClock.elapsedRealtime() - verifiedAt > verificationTtl) {
+                verifiedPackages.remove(packageName);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private void setVerified(String packageName) {
+        synchronized (verifiedPackages) {
+            verifiedPackages.put(packageName, SystemClock.elapsedRealtime());
+        }
+    }
+
+    private static long getMinCacheTtl(RxMagnetoConfig config) {
+        long minCacheTtl = Long.MAX_VALUE;
+        for (PlayField field : PlayField.values()) {
+            minCacheTtl = Math.min(minCacheTtl, config.getCacheTtl(field));
+        }
+        return minCacheTtl;
+    }
+
+    /**
+     * Create the exception for an unexpected response status. A client error means the page of
+     * the package is gone, so the package is no longer considered verified.
+     */
+    private HttpStatusException newHttpStatusException(String packageName,
+                                                       HttpResponse httpResponse) {
+        int statusCode = httpResponse.getStatusCode();
+        boolean isServerFailure = statusCode == HTTP_TOO_MANY_REQUESTS
+                || statusCode >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+        if (!isServerFailure) {
+            synchronized (verifiedPackages) {
+                verifiedPackages.remove(packageName);
+            }
+        }
+        return new HttpStatusException(RxMagnetoErrorCodeMap.ERROR_GENERIC.getErrorCode(),
+                context.getString(isServerFailure
+                        ? R.string.message_play_store_unavailable
+                        : R.string.message_package_url_malformed),
+                statusCode, parseRetryAfter(httpResponse.getHeader(HEADER_RETRY_AFTER)));
+    }
+
+    /**
+     * Parse a {@code Retry-After} header, which is either a no. of seconds or a date
+     *
+     * @return The time to wait in milliseconds or -1 if the header is missing or malformed
+     */
+    private static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
             try {
-                String packageUrl = MARKET_PLAY_STORE_URL + packageName;
+                long date = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US)
+                        .parse(retryAfter.trim()).getTime();
+                return Math.max(0, date - System.currentTimeMillis());
+            } catch (ParseException ignored) {
+                return -1;
+            }
+        }
+    }
 
-                if (!isConnected(context)) {
-                    emitter.onError(new NetworkNotAvailableException(context
-                            .getString(R.string.message_internet_not_available)));
-                    return;
-                }
+    private boolean checkConnectivity(RequestMetrics.Builder metricsBuilder) {
+        long startNanos = System.nanoTime();
+        boolean isConnected = connectivityMonitor.isConnected();
+        metricsBuilder.setConnectivityCheckNanos(System.nanoTime() - startNanos);
+        return isConnected;
+    }
+
+    /**
+     * Record the phases measured by the transport. If the transport does not measure the time
+     * to first byte, the whole time taken to execute the request is used instead.
+     */
+    private static void recordResponseMetrics(RequestMetrics.Builder metricsBuilder,
+                                              HttpResponse httpResponse, long requestNanos) {
+        long timeToFirstByteNanos = httpResponse.getTimeToFirstByteNanos();
+        metricsBuilder.setConnectNanos(httpResponse.getConnectNanos())
+                .setTimeToFirstByteNanos(timeToFirstByteNanos != RequestMetrics.UNKNOWN
+                        ? timeToFirstByteNanos
+                        : requestNanos)
+                .setDownloadNanos(httpResponse.getDownloadNanos())
+                .setBytesReceived(httpResponse.getBytesReceived());
+    }
 
-                Elements elements = Jsoup.connect(packageUrl)
-                        .timeout(DEFAULT_TIMEOUT)
-                        .ignoreHttpErrors(true)
-                        .referrer(DEFAULT_REFERRER)
-                        .get()
-                        .select(".recent-change");
-
-                int elementSize = elements.size();
-                String[] parsedDataArray = new String[elementSize];
-                for (int i = 0; i < elementSize; i++) {
-                    parsedDataArray[i] = elements.get(i).ownText();
+    private void reportMetrics(RequestMetrics.Builder metricsBuilder) {
+        RequestMetrics requestMetrics = metricsBuilder.build();
+        histogramMetricsListener.onRequestFinished(requestMetrics);
+        if (metricsListener != null) {
+            metricsListener.onRequestFinished(requestMetrics);
+        }
+    }
+
+    /**
+     * Report the metrics of an attempt that has ended. An attempt disposed meanwhile, e.g. the
+     * losing attempt of a hedged request or a canceled subscription, is reported as
+     * {@link Outcome#CANCELED} instead, whether it failed or not, as its result was not used.
+     *
+     * @param metricsBuilder     The metrics of the attempt
+     * @param cancellationSignal The signal canceled once the attempt is disposed
+     * @param error              The failure of the attempt or null if it succeeded
+     */
+    private void reportMetrics(RequestMetrics.Builder metricsBuilder,
+                               CancellationSignal cancellationSignal, Throwable error) {
+        if (cancellationSignal.isCanceled()) {
+            metricsBuilder.setOutcome(Outcome.CANCELED);
+        } else if (error != null) {
+            metricsBuilder.setError(error);
+        }
+        reportMetrics(metricsBuilder);
+    }
+
+    private HttpRequest.Builder newRequestBuilder(String url) {
+        return new HttpRequest.Builder(url)
+                .setConnectTimeout(DEFAULT_TIMEOUT)
+                .setReadTimeout(DEFAULT_TIMEOUT)
+                .setHeader(HEADER_USER_AGENT, DEFAULT_USER_AGENT)
+                .setHeader(HEADER_REFERER, DEFAULT_REFERRER);
+    }
+
+    private static String getCharset(String contentType) {
+        if (contentType != null) {
+            int index = contentType.toLowerCase(Locale.US).indexOf(CHARSET_PARAMETER);
+            if (index >= 0) {
+                String charset = contentType.substring(index + CHARSET_PARAMETER.length()).trim();
+                int end = charset.indexOf(';');
+                charset = (end >= 0 ? charset.substring(0, end) : charset).replace("\"", "").trim();
+                try {
+                    if (Charset.isSupported(charset)) {
+                        return charset;
+                    }
+                } catch (IllegalArgumentException ignored) {
                 }
+            }
+        }
+        return DEFAULT_CHARSET;
+    }
 
-                PlayPackageInfo playPackageInfo = new PlayPackageInfo.Builder(packageName, packageUrl)
-                        .setChangelogArray(Arrays.asList(parsedDataArray))
-                        .build();
-                emitter.onSuccess(playPackageInfo);
-            } catch (Exception e) {
-                emitter.onError(e);
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
             }
-        });
+        }
+    }
+
+    /**
+     * An attempt of a request to Play Store, which aborts its connection when the cancellation
+     * signal is canceled
+     */
+    private interface RequestSource<T> {
+        void subscribe(SingleEmitter<T> emitter, CancellationSignal cancellationSignal)
+                throws Exception;
     }
 
-    private PlayPackageInfo.Builder updatePlayPackageInfoFromTag(PlayPackageInfo.Builder builder,
-                                                                 String tag, String value) {
-        switch (tag) {
-            case TAG_PLAY_STORE_VERSION:
-                builder.setPackageVersion(value);
-                break;
-            case TAG_PLAY_STORE_DOWNLOADS:
-                builder.setDownloads(value);
-                break;
-            case TAG_PLAY_STORE_LAST_PUBLISHED_DATE:
-                builder.setPublishedDate(value);
-                break;
-            case TAG_PLAY_STORE_OS_REQUIREMENTS:
-                builder.setOsRequirements(value);
-                break;
-            case TAG_PLAY_STORE_CONTENT_RATING:
-                builder.setContentRating(value);
-                break;
-            case TAG_PLAY_STORE_APP_RATING:
-                builder.setAppRating(value);
-                break;
-            case TAG_PLAY_STORE_APP_RATING_COUNT:
-                builder.setAppRatingCount(value);
-                break;
-        }
-        return builder;
-    }
-}
\ No newline at end of file
+    /**
+     * An attempt of a hedged request to Play Store, which notifies the response listener, if
+     * any, once the response headers have arrived
+     */
+    private interface HedgedRequestSource<T> {
+        void subscribe(SingleEmitter<T> emitter, CancellationSignal cancellationSignal,
+                       RequestHedger.ResponseListener responseListener) throws Exception;
+    }
+}
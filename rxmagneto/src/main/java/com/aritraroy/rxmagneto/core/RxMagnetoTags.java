@@ -8,4 +8,5 @@ public class RxMagnetoTags {
     public static final String TAG_PLAY_STORE_CONTENT_RATING = "contentRating";
     public static final String TAG_PLAY_STORE_APP_RATING = "score";
     public static final String TAG_PLAY_STORE_APP_RATING_COUNT = "reviews-num";
+    public static final String TAG_PLAY_STORE_RECENT_CHANGE = "recent-change";
 }
@@ -0,0 +1,36 @@
+package com.aritraroy.rxmagneto.domain;
+
+/**
+ * Result of comparing the installed version of a package with its version on Play Store
+ */
+public class PackageUpgrade {
+
+    private final String packageName;
+    private final String installedVersion;
+    private final String playStoreVersion;
+    private final boolean isUpgradeAvailable;
+
+    public PackageUpgrade(String packageName, String installedVersion, String playStoreVersion,
+                          boolean isUpgradeAvailable) {
+        this.packageName = packageName;
+        this.installedVersion = installedVersion;
+        this.playStoreVersion = playStoreVersion;
+        this.isUpgradeAvailable = isUpgradeAvailable;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getInstalledVersion() {
+        return installedVersion;
+    }
+
+    public String getPlayStoreVersion() {
+        return playStoreVersion;
+    }
+
+    public boolean isUpgradeAvailable() {
+        return isUpgradeAvailable;
+    }
+}
@@ -0,0 +1,15 @@
+package com.aritraroy.rxmagneto.domain;
+
+/**
+ * The individual fields of a {@link PlayPackageInfo} that can be fetched from Play Store
+ */
+public enum PlayField {
+    VERSION,
+    DOWNLOADS,
+    PUBLISHED_DATE,
+    OS_REQUIREMENTS,
+    CONTENT_RATING,
+    APP_RATING,
+    APP_RATING_COUNT,
+    CHANGELOG
+}
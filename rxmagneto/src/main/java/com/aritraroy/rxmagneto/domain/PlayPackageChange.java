@@ -0,0 +1,42 @@
+package com.aritraroy.rxmagneto.domain;
+
+/**
+ * Event describing a change of a particular field of a package observed on Play Store
+ */
+public class PlayPackageChange {
+
+    private final PlayField field;
+    private final PlayPackageInfo previousPlayPackageInfo;
+    private final PlayPackageInfo playPackageInfo;
+
+    public PlayPackageChange(PlayField field, PlayPackageInfo previousPlayPackageInfo,
+                             PlayPackageInfo playPackageInfo) {
+        this.field = field;
+        this.previousPlayPackageInfo = previousPlayPackageInfo;
+        this.playPackageInfo = playPackageInfo;
+    }
+
+    public String getPackageName() {
+        return playPackageInfo.getPackageName();
+    }
+
+    public PlayField getField() {
+        return field;
+    }
+
+    public Object getPreviousValue() {
+        return previousPlayPackageInfo.getValue(field);
+    }
+
+    public Object getValue() {
+        return playPackageInfo.getValue(field);
+    }
+
+    public PlayPackageInfo getPreviousPlayPackageInfo() {
+        return previousPlayPackageInfo;
+    }
+
+    public PlayPackageInfo getPlayPackageInfo() {
+        return playPackageInfo;
+    }
+}
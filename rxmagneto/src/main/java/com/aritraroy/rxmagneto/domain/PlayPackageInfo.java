@@ -1,12 +1,24 @@
 package com.aritraroy.rxmagneto.domain;
 
+import com.aritraroy.rxmagneto.util.FieldParsers;
+
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
- * Container to hold data of a particular package available on Play Store
+ * Container to hold data of a particular package available on Play Store. Besides the text shown
+ * on the page, the numeric and date fields are parsed once into typed values when the container
+ * is built, which are {@link #UNKNOWN} (or {@link Float#NaN} for the rating) if the text could
+ * not be parsed. Projections and merges carry the parsed values over instead of parsing again.
+ * <p>
+ * A container may be a projection holding only some of the fields, see {@link #getFields()}.
  */
 public class PlayPackageInfo {
 
+    public static final long UNKNOWN = FieldParsers.UNKNOWN;
+
     private final String packageName;
     private final String packageUrl;
     private final boolean isUrlValid;
@@ -18,6 +30,12 @@ public class PlayPackageInfo {
     private final String appRating;
     private final String appRatingCount;
     private final List<String> changelogArray;
+    private final Set<PlayField> fields;
+    private final long minDownloads;
+    private final long maxDownloads;
+    private final long publishedDateMillis;
+    private final float appRatingValue;
+    private final long appRatingCountValue;
 
     private PlayPackageInfo(Builder builder) {
         packageName = builder.packageName;
@@ -31,6 +49,26 @@ public class PlayPackageInfo {
         appRating = builder.appRating;
         appRatingCount = builder.appRatingCount;
         changelogArray = builder.changelogArray;
+        Set<PlayField> fields = EnumSet.noneOf(PlayField.class);
+        fields.addAll(builder.fields);
+        this.fields = Collections.unmodifiableSet(fields);
+        Set<PlayField> parsedFields = builder.parsedFields;
+        if (parsedFields.contains(PlayField.DOWNLOADS)) {
+            minDownloads = builder.minDownloads;
+            maxDownloads = builder.maxDownloads;
+        } else {
+            minDownloads = FieldParsers.parseMinDownloads(downloads);
+            maxDownloads = FieldParsers.parseMaxDownloads(downloads);
+        }
+        publishedDateMillis = parsedFields.contains(PlayField.PUBLISHED_DATE)
+                ? builder.publishedDateMillis
+                : FieldParsers.parseDate(publishedDate);
+        appRatingValue = parsedFields.contains(PlayField.APP_RATING)
+                ? builder.appRatingValue
+                : FieldParsers.parseRating(appRating);
+        appRatingCountValue = parsedFields.contains(PlayField.APP_RATING_COUNT)
+                ? builder.appRatingCountValue
+                : FieldParsers.parseCount(appRatingCount);
     }
 
     public String getPackageName() {
@@ -77,6 +115,143 @@ public class PlayPackageInfo {
         return changelogArray;
     }
 
+    /**
+     * @return The fields this container holds, the values of all the other fields are null
+     */
+    public Set<PlayField> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return The lower bound of the downloads range or {@link #UNKNOWN}
+     */
+    public long getMinDownloads() {
+        return minDownloads;
+    }
+
+    /**
+     * @return The upper bound of the downloads range or {@link #UNKNOWN} if the page only shows
+     * a lower bound, e.g. "1,000,000+"
+     */
+    public long getMaxDownloads() {
+        return maxDownloads;
+    }
+
+    /**
+     * @return The published date as epoch millis of its midnight in UTC or {@link #UNKNOWN}.
+     * Only English and ISO dates are understood.
+     */
+    public long getPublishedDateMillis() {
+        return publishedDateMillis;
+    }
+
+    /**
+     * @return The app rating or {@link Float#NaN}
+     */
+    public float getAppRatingValue() {
+        return appRatingValue;
+    }
+
+    /**
+     * @return The number of ratings or {@link #UNKNOWN}
+     */
+    public long getAppRatingCountValue() {
+        return appRatingCountValue;
+    }
+
+    /**
+     * Get the value of a particular field
+     *
+     * @param field A particular field
+     * @return The value of the field, which is a list of strings for
+     * {@link PlayField#CHANGELOG} and a string otherwise
+     */
+    public Object getValue(PlayField field) {
+        switch (field) {
+            case VERSION:
+                return packageVersion;
+            case DOWNLOADS:
+                return downloads;
+            case PUBLISHED_DATE:
+                return publishedDate;
+            case OS_REQUIREMENTS:
+                return osRequirements;
+            case CONTENT_RATING:
+                return contentRating;
+            case APP_RATING:
+                return appRating;
+            case APP_RATING_COUNT:
+                return appRatingCount;
+            case CHANGELOG:
+                return changelogArray;
+            default:
+                throw new IllegalArgumentException("Unknown field " + field);
+        }
+    }
+
+    /**
+     * Get a projection of this container holding only some of its fields
+     *
+     * @param fields The fields to keep
+     * @return A new {@link PlayPackageInfo} holding the fields both contain
+     */
+    public PlayPackageInfo project(Set<PlayField> fields) {
+        Set<PlayField> projectedFields = EnumSet.noneOf(PlayField.class);
+        projectedFields.addAll(fields);
+        projectedFields.retainAll(this.fields);
+        return copyValues(new Builder(packageName, packageUrl).setIsUrlValid(isUrlValid),
+                projectedFields)
+                .setFields(projectedFields)
+                .build();
+    }
+
+    /**
+     * Merge the fields of another container of the same package into this one
+     *
+     * @param other The container whose fields take precedence
+     * @return A new {@link PlayPackageInfo} holding the fields of both
+     */
+    public PlayPackageInfo merge(PlayPackageInfo other) {
+        Set<PlayField> mergedFields = EnumSet.noneOf(PlayField.class);
+        mergedFields.addAll(fields);
+        mergedFields.addAll(other.fields);
+        Builder builder = new Builder(packageName, packageUrl)
+                .setIsUrlValid(isUrlValid || other.isUrlValid);
+        copyValues(builder, fields);
+        return other.copyValues(builder, other.fields)
+                .setFields(mergedFields)
+                .build();
+    }
+
+    /**
+     * Copy the text of some fields into a builder along with the values already parsed from it,
+     * so that projections and merges are not parsed again
+     */
+    private Builder copyValues(Builder builder, Set<PlayField> fields) {
+        for (PlayField field : fields) {
+            builder.setValue(field, getValue(field));
+            switch (field) {
+                case DOWNLOADS:
+                    builder.minDownloads = minDownloads;
+                    builder.maxDownloads = maxDownloads;
+                    break;
+                case PUBLISHED_DATE:
+                    builder.publishedDateMillis = publishedDateMillis;
+                    break;
+                case APP_RATING:
+                    builder.appRatingValue = appRatingValue;
+                    break;
+                case APP_RATING_COUNT:
+                    builder.appRatingCountValue = appRatingCountValue;
+                    break;
+                default:
+                    continue;
+            }
+            builder.parsedFields.add(field);
+        }
+        return builder;
+    }
+
     public static class Builder {
         private String packageName;
         private String packageUrl;
@@ -89,6 +264,13 @@ public class PlayPackageInfo {
         private String appRating;
         private String appRatingCount;
         private List<String> changelogArray;
+        private Set<PlayField> fields = EnumSet.allOf(PlayField.class);
+        private final Set<PlayField> parsedFields = EnumSet.noneOf(PlayField.class);
+        private long minDownloads;
+        private long maxDownloads;
+        private long publishedDateMillis;
+        private float appRatingValue;
+        private long appRatingCountValue;
 
         public Builder(String packageName, String packageUrl) {
             this.packageName = packageName;
@@ -107,11 +289,13 @@ public class PlayPackageInfo {
 
         public Builder setDownloads(String downloads) {
             this.downloads = downloads;
+            parsedFields.remove(PlayField.DOWNLOADS);
             return this;
         }
 
         public Builder setPublishedDate(String publishedDate) {
             this.publishedDate = publishedDate;
+            parsedFields.remove(PlayField.PUBLISHED_DATE);
             return this;
         }
 
@@ -127,11 +311,13 @@ public class PlayPackageInfo {
 
         public Builder setAppRating(String appRating) {
             this.appRating = appRating;
+            parsedFields.remove(PlayField.APP_RATING);
             return this;
         }
 
         public Builder setAppRatingCount(String appRatingCount) {
             this.appRatingCount = appRatingCount;
+            parsedFields.remove(PlayField.APP_RATING_COUNT);
             return this;
         }
 
@@ -140,6 +326,49 @@ public class PlayPackageInfo {
             return this;
         }
 
+        /**
+         * Set the value of a particular field
+         *
+         * @param field A particular field
+         * @param value The value, which is a list of strings for {@link PlayField#CHANGELOG}
+         *              and a string otherwise
+         * @return The builder
+         */
+        @SuppressWarnings("unchecked")
+        public Builder setValue(PlayField field, Object value) {
+            switch (field) {
+                case VERSION:
+                    return setPackageVersion((String) value);
+                case DOWNLOADS:
+                    return setDownloads((String) value);
+                case PUBLISHED_DATE:
+                    return setPublishedDate((String) value);
+                case OS_REQUIREMENTS:
+                    return setOsRequirements((String) value);
+                case CONTENT_RATING:
+                    return setContentRating((String) value);
+                case APP_RATING:
+                    return setAppRating((String) value);
+                case APP_RATING_COUNT:
+                    return setAppRatingCount((String) value);
+                case CHANGELOG:
+                    return setChangelogArray((List<String>) value);
+                default:
+                    throw new IllegalArgumentException("Unknown field " + field);
+            }
+        }
+
+        /**
+         * Set the fields the container holds, all of them by default
+         *
+         * @param fields The fields the container holds
+         * @return The builder
+         */
+        public Builder setFields(Set<PlayField> fields) {
+            this.fields = fields;
+            return this;
+        }
+
         public PlayPackageInfo build() {
             return new PlayPackageInfo(this);
         }
@@ -0,0 +1,12 @@
+package com.aritraroy.rxmagneto.exceptions;
+
+/**
+ * Exception thrown without making a request while the circuit breaker of a host is open, i.e.
+ * the host has recently failed too many requests in a row
+ */
+public class CircuitOpenException extends RxMagnetoException {
+
+    public CircuitOpenException(int errorCode, String message) {
+        super(errorCode, message);
+    }
+}
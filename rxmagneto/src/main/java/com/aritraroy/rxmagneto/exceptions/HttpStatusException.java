@@ -0,0 +1,33 @@
+package com.aritraroy.rxmagneto.exceptions;
+
+/**
+ * Exception thrown when Play Store responds with an unexpected status code, e.g. 404 for an
+ * unknown package or 429 when it throttles the client
+ */
+public class HttpStatusException extends RxMagnetoException {
+
+    private final int statusCode;
+    private final long retryAfterMillis;
+
+    /**
+     * @param errorCode        The error code
+     * @param message          The message describing the error
+     * @param statusCode       The status code of the response
+     * @param retryAfterMillis The time Play Store asked to wait before retrying in milliseconds,
+     *                         or -1 if it did not ask
+     */
+    public HttpStatusException(int errorCode, String message, int statusCode,
+                               long retryAfterMillis) {
+        super(errorCode, message);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
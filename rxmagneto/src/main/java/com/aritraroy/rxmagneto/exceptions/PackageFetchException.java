@@ -0,0 +1,19 @@
+package com.aritraroy.rxmagneto.exceptions;
+
+/**
+ * Exception reported when the information of one particular package of a batch could not be
+ * fetched. The original failure is available as its cause.
+ */
+public class PackageFetchException extends Exception {
+
+    private final String packageName;
+
+    public PackageFetchException(String packageName, Throwable cause) {
+        super("Failed to fetch " + packageName, cause);
+        this.packageName = packageName;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+}
@@ -0,0 +1,73 @@
+package com.aritraroy.rxmagneto.extractor;
+
+/**
+ * Allocation free helpers to compare the scratch buffers of the extractor with plain strings
+ */
+final class CharSequences {
+
+    private CharSequences() {
+    }
+
+    static boolean contentEquals(CharSequence value, String expected) {
+        return value.length() == expected.length() && regionEquals(value, 0, expected);
+    }
+
+    static boolean contentEqualsTrimmed(CharSequence value, String expected) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && isWhitespace(value.charAt(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(value.charAt(end - 1))) {
+            end--;
+        }
+        return end - start == expected.length() && regionEquals(value, start, expected);
+    }
+
+    /**
+     * Check if a whitespace separated list of tokens, like a class attribute, contains a token
+     */
+    static boolean containsToken(CharSequence tokens, String token) {
+        int length = tokens.length();
+        int start = 0;
+        while (start < length) {
+            while (start < length && isWhitespace(tokens.charAt(start))) {
+                start++;
+            }
+            int end = start;
+            while (end < length && !isWhitespace(tokens.charAt(end))) {
+                end++;
+            }
+            if (end - start == token.length() && regionEquals(tokens, start, token)) {
+                return true;
+            }
+            start = end;
+        }
+        return false;
+    }
+
+    static boolean regionEquals(CharSequence value, int offset, String expected) {
+        for (int i = 0; i < expected.length(); i++) {
+            if (toLowerCase(value.charAt(offset + i)) != toLowerCase(expected.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    static boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    static boolean isLetterOrDigit(int c) {
+        return isLetter(c) || (c >= '0' && c <= '9');
+    }
+
+    static int toLowerCase(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+}
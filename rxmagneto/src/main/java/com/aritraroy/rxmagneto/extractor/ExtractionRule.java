@@ -0,0 +1,67 @@
+package com.aritraroy.rxmagneto.extractor;
+
+import com.aritraroy.rxmagneto.domain.PlayField;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A rule describing where a particular {@link PlayField} can be found on a Play Store page. The
+ * first selector is the preferred one and the following ones are fallbacks used only when the
+ * page does not contain an element matching a more preferred selector, e.g. after a layout
+ * change of Play Store.
+ */
+public final class ExtractionRule {
+
+    private final PlayField field;
+    private final List<ExtractionSelector> selectors;
+
+    private ExtractionRule(PlayField field, List<ExtractionSelector> selectors) {
+        this.field = field;
+        this.selectors = Collections.unmodifiableList(selectors);
+    }
+
+    static ExtractionRule compile(PlayField field, List<String> attributeNames,
+                                  String... selectors) {
+        List<ExtractionSelector> compiledSelectors = new ArrayList<>(selectors.length);
+        for (String selector : selectors) {
+            compiledSelectors.add(ExtractionSelector.compile(selector, attributeNames));
+        }
+        return new ExtractionRule(field, compiledSelectors);
+    }
+
+    public PlayField getField() {
+        return field;
+    }
+
+    /**
+     * @return If every matching element contributes a value, instead of only the first one
+     */
+    public boolean isMultiValued() {
+        return field == PlayField.CHANGELOG;
+    }
+
+    /**
+     * Get the priority of the first selector matching a start tag
+     *
+     * @param tagName         The lower case name of the element
+     * @param attributeValues The captured attribute values of the element
+     * @param maxPriority     The priority to stop at, exclusive
+     * @return The index of the matching selector or -1 if none of them matches
+     */
+    int match(CharSequence tagName, CharSequence[] attributeValues, int maxPriority) {
+        int size = Math.min(selectors.size(), maxPriority);
+        for (int i = 0; i < size; i++) {
+            if (selectors.get(i).matches(tagName, attributeValues)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return field + " " + selectors;
+    }
+}
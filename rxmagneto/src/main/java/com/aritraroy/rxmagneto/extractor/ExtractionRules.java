@@ -0,0 +1,96 @@
+package com.aritraroy.rxmagneto.extractor;
+
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_APP_RATING;
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_APP_RATING_COUNT;
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_CONTENT_RATING;
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_DOWNLOADS;
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_LAST_PUBLISHED_DATE;
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_OS_REQUIREMENTS;
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_RECENT_CHANGE;
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_VERSION;
+
+import com.aritraroy.rxmagneto.domain.PlayField;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The registry of all the {@link ExtractionRule}s, keyed by the {@code RxMagnetoTags} constants.
+ * Every selector is compiled only once when this class is loaded.
+ */
+public final class ExtractionRules {
+
+    private static final List<String> ATTRIBUTE_NAMES = new ArrayList<>();
+    private static final Map<String, ExtractionRule> RULES_BY_TAG = new HashMap<>();
+    private static final ExtractionRule[] RULES_BY_FIELD =
+            new ExtractionRule[PlayField.values().length];
+
+    static {
+        register(TAG_PLAY_STORE_VERSION, PlayField.VERSION,
+                itemPropSelector("div", TAG_PLAY_STORE_VERSION),
+                itemPropSelector("", TAG_PLAY_STORE_VERSION));
+        register(TAG_PLAY_STORE_DOWNLOADS, PlayField.DOWNLOADS,
+                itemPropSelector("div", TAG_PLAY_STORE_DOWNLOADS),
+                itemPropSelector("", TAG_PLAY_STORE_DOWNLOADS));
+        register(TAG_PLAY_STORE_LAST_PUBLISHED_DATE, PlayField.PUBLISHED_DATE,
+                itemPropSelector("div", TAG_PLAY_STORE_LAST_PUBLISHED_DATE),
+                itemPropSelector("", TAG_PLAY_STORE_LAST_PUBLISHED_DATE));
+        register(TAG_PLAY_STORE_OS_REQUIREMENTS, PlayField.OS_REQUIREMENTS,
+                itemPropSelector("div", TAG_PLAY_STORE_OS_REQUIREMENTS),
+                itemPropSelector("", TAG_PLAY_STORE_OS_REQUIREMENTS));
+        register(TAG_PLAY_STORE_CONTENT_RATING, PlayField.CONTENT_RATING,
+                itemPropSelector("div", TAG_PLAY_STORE_CONTENT_RATING),
+                itemPropSelector("", TAG_PLAY_STORE_CONTENT_RATING));
+        register(TAG_PLAY_STORE_APP_RATING, PlayField.APP_RATING,
+                "div[class=" + TAG_PLAY_STORE_APP_RATING + "]",
+                "div." + TAG_PLAY_STORE_APP_RATING);
+        register(TAG_PLAY_STORE_APP_RATING_COUNT, PlayField.APP_RATING_COUNT,
+                "span[class=" + TAG_PLAY_STORE_APP_RATING_COUNT + "]",
+                "." + TAG_PLAY_STORE_APP_RATING_COUNT);
+        register(TAG_PLAY_STORE_RECENT_CHANGE, PlayField.CHANGELOG,
+                "." + TAG_PLAY_STORE_RECENT_CHANGE);
+    }
+
+    private ExtractionRules() {
+    }
+
+    /**
+     * Get the rule registered for a tag
+     *
+     * @param tag One of the {@code RxMagnetoTags} constants
+     * @return The {@link ExtractionRule} or null if the tag is unknown
+     */
+    public static ExtractionRule get(String tag) {
+        return RULES_BY_TAG.get(tag);
+    }
+
+    /**
+     * Get the rule extracting a particular field
+     *
+     * @param field A particular field
+     * @return The {@link ExtractionRule} of the field
+     */
+    public static ExtractionRule get(PlayField field) {
+        return RULES_BY_FIELD[field.ordinal()];
+    }
+
+    /**
+     * @return The names of all the attributes looked at by any of the rules
+     */
+    static List<String> getAttributeNames() {
+        return Collections.unmodifiableList(ATTRIBUTE_NAMES);
+    }
+
+    private static void register(String tag, PlayField field, String... selectors) {
+        ExtractionRule rule = ExtractionRule.compile(field, ATTRIBUTE_NAMES, selectors);
+        RULES_BY_TAG.put(tag, rule);
+        RULES_BY_FIELD[field.ordinal()] = rule;
+    }
+
+    private static String itemPropSelector(String elementName, String tag) {
+        return elementName + "[itemprop=" + tag + "]";
+    }
+}
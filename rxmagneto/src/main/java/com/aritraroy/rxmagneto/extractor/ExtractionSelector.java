@@ -0,0 +1,116 @@
+package com.aritraroy.rxmagneto.extractor;
+
+import static com.aritraroy.rxmagneto.extractor.CharSequences.containsToken;
+import static com.aritraroy.rxmagneto.extractor.CharSequences.contentEquals;
+import static com.aritraroy.rxmagneto.extractor.CharSequences.contentEqualsTrimmed;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A compiled element selector understood by the {@link PlayPageExtractor}. Only the simple
+ * forms used to locate Play Store fields are supported: {@code element[attribute=value]},
+ * {@code [attribute=value]}, {@code element.class} and {@code .class}.
+ */
+final class ExtractionSelector {
+
+    private static final String ATTRIBUTE_CLASS = "class";
+
+    private final String selector;
+    private final String elementName;
+    private final String value;
+    private final int attributeIndex;
+    private final boolean matchesToken;
+
+    private ExtractionSelector(String selector, String elementName, String value,
+                               int attributeIndex, boolean matchesToken) {
+        this.selector = selector;
+        this.elementName = elementName;
+        this.value = value;
+        this.attributeIndex = attributeIndex;
+        this.matchesToken = matchesToken;
+    }
+
+    /**
+     * Compile a selector, registering the attribute it looks at in {@code attributeNames}
+     *
+     * @param selector       The selector to compile
+     * @param attributeNames The attribute names the extractor has to capture
+     * @return The compiled selector
+     */
+    static ExtractionSelector compile(String selector, List<String> attributeNames) {
+        String trimmedSelector = selector.trim();
+        int bracketIndex = trimmedSelector.indexOf('[');
+        int dotIndex = trimmedSelector.indexOf('.');
+
+        String elementName;
+        String attributeName;
+        String value;
+        boolean matchesToken;
+        if (bracketIndex >= 0 && trimmedSelector.endsWith("]")) {
+            int equalsIndex = trimmedSelector.indexOf('=', bracketIndex);
+            if (equalsIndex < 0) {
+                throw new IllegalArgumentException("Unsupported selector: " + selector);
+            }
+            elementName = trimmedSelector.substring(0, bracketIndex);
+            attributeName = trimmedSelector.substring(bracketIndex + 1, equalsIndex).trim();
+            value = unquote(trimmedSelector.substring(equalsIndex + 1,
+                    trimmedSelector.length() - 1).trim());
+            matchesToken = false;
+        } else if (dotIndex >= 0 && bracketIndex < 0) {
+            elementName = trimmedSelector.substring(0, dotIndex);
+            attributeName = ATTRIBUTE_CLASS;
+            value = trimmedSelector.substring(dotIndex + 1);
+            matchesToken = true;
+        } else {
+            throw new IllegalArgumentException("Unsupported selector: " + selector);
+        }
+        if (attributeName.isEmpty() || value.isEmpty()) {
+            throw new IllegalArgumentException("Unsupported selector: " + selector);
+        }
+
+        attributeName = attributeName.toLowerCase(Locale.US);
+        int attributeIndex = attributeNames.indexOf(attributeName);
+        if (attributeIndex < 0) {
+            attributeIndex = attributeNames.size();
+            attributeNames.add(attributeName);
+        }
+        return new ExtractionSelector(trimmedSelector,
+                elementName.isEmpty() ? null : elementName.toLowerCase(Locale.US),
+                value, attributeIndex, matchesToken);
+    }
+
+    /**
+     * Check if a start tag matches this selector
+     *
+     * @param tagName         The lower case name of the element
+     * @param attributeValues The captured attribute values of the element, indexed like the
+     *                        attribute names passed while compiling
+     * @return If the element matches
+     */
+    boolean matches(CharSequence tagName, CharSequence[] attributeValues) {
+        if (elementName != null && !contentEquals(tagName, elementName)) {
+            return false;
+        }
+        CharSequence attributeValue = attributeValues[attributeIndex];
+        if (attributeValue.length() == 0) {
+            return false;
+        }
+        return matchesToken
+                ? containsToken(attributeValue, value)
+                : contentEqualsTrimmed(attributeValue, value);
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'')
+                && value.charAt(value.length() - 1) == value.charAt(0)) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return selector;
+    }
+}
@@ -0,0 +1,624 @@
+package com.aritraroy.rxmagneto.extractor;
+
+import static com.aritraroy.rxmagneto.extractor.CharSequences.contentEquals;
+import static com.aritraroy.rxmagneto.extractor.CharSequences.isLetter;
+import static com.aritraroy.rxmagneto.extractor.CharSequences.isLetterOrDigit;
+import static com.aritraroy.rxmagneto.extractor.CharSequences.isWhitespace;
+import static com.aritraroy.rxmagneto.extractor.CharSequences.toLowerCase;
+
+import com.aritraroy.rxmagneto.domain.PlayField;
+import com.aritraroy.rxmagneto.domain.PlayPackageInfo;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A streaming extractor of Play Store page fields. Instead of building a DOM of the whole page,
+ * it scans the markup as it is read, only looks at the attributes used by the
+ * {@link ExtractionRules} of the requested fields and collects the own text of the matching
+ * elements. All the rules are evaluated in the same single pass and reading stops as soon as
+ * every requested field has been found by its preferred selector, so the rest of the page is
+ * never downloaded or parsed. As changelog entries may appear anywhere in the page, requesting
+ * the changelog reads the whole page.
+ * <p>
+ * Like an HTML parser, the scanner closes the elements whose end tags are implied by a start
+ * tag, e.g. an open {@code <p>} or {@code <li>}, treats a self-closed element like
+ * {@code <div/>} as an empty one and ignores the nesting beyond a maximum depth, so the own text
+ * of an element is the same as the one a DOM would report.
+ * <p>
+ * Changelog entries can also be handed to a {@link ChangelogListener} one at a time as soon as
+ * each of them has been read, which can stop the extraction early.
+ * <p>
+ * An extractor keeps its scratch buffers between runs, but it is not thread-safe.
+ */
+public class PlayPageExtractor {
+
+    private static final String ELEMENT_BR = "br";
+    private static final String ELEMENT_LI = "li";
+    private static final String ELEMENT_DD = "dd";
+    private static final String ELEMENT_DT = "dt";
+
+    private static final String[] VOID_ELEMENTS = {"area", "base", "br", "col", "embed", "hr",
+            "img", "input", "keygen", "link", "meta", "param", "source", "track", "wbr"};
+    private static final String[] RAW_TEXT_ELEMENTS = {"script", "style", "title", "textarea"};
+    private static final String[] P_CLOSING_ELEMENTS = {"address", "article", "aside",
+            "blockquote", "dd", "details", "dialog", "dir", "div", "dl", "dt", "fieldset",
+            "figcaption", "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header",
+            "hgroup", "hr", "li", "main", "menu", "nav", "ol", "p", "pre", "section", "table",
+            "ul"};
+
+    // The hashes of the elements closed by a start tag and of the ones bounding their search
+    private static final int[] P_HASHES = hashes("p");
+    private static final int[] LI_HASHES = hashes("li");
+    private static final int[] DD_DT_HASHES = hashes("dd", "dt");
+    private static final int[] BUTTON_SCOPE_HASHES = hashes("applet", "button", "caption",
+            "html", "marquee", "object", "table", "td", "template", "th");
+    private static final int[] LIST_ITEM_SCOPE_HASHES = hashes("applet", "caption", "html",
+            "marquee", "object", "ol", "table", "td", "template", "th", "ul");
+    private static final int[] DEFINITION_SCOPE_HASHES = hashes("applet", "caption", "dl",
+            "html", "marquee", "object", "table", "td", "template", "th");
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_DEPTH = 512;
+    private static final int MAX_ENTITY_LENGTH = 10;
+
+    private final Set<PlayField> fields;
+    private final Set<PlayField> pendingFields;
+    private final ExtractionRule[] rules;
+    private final int[] matchedPriorities = new int[PlayField.values().length];
+    private final List<String> attributeNames = ExtractionRules.getAttributeNames();
+    private final StringBuilder[] attributeValues;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final int[] openElements = new int[MAX_DEPTH];
+    private final StringBuilder tagName = new StringBuilder(16);
+    private final StringBuilder attributeName = new StringBuilder(16);
+    private final StringBuilder text = new StringBuilder(256);
+    private final StringBuilder entity = new StringBuilder(MAX_ENTITY_LENGTH);
+
+    private Reader reader;
+    private int position;
+    private int limit;
+    private int depth;
+    private int overflowDepth;
+
+    private PlayField capturedField;
+    private int capturedPriority;
+    private int capturedDepth;
+    private List<String> changelogArray;
+    private ChangelogListener changelogListener;
+    private boolean isStopped;
+
+    /**
+     * @param fields The fields to extract from the page
+     */
+    public PlayPageExtractor(Set<PlayField> fields) {
+        this.fields = EnumSet.copyOf(fields);
+        this.pendingFields = EnumSet.noneOf(PlayField.class);
+
+        rules = new ExtractionRule[this.fields.size()];
+        int index = 0;
+        for (PlayField field : this.fields) {
+            rules[index++] = ExtractionRules.get(field);
+        }
+        attributeValues = new StringBuilder[attributeNames.size()];
+        for (int i = 0; i < attributeValues.length; i++) {
+            attributeValues[i] = new StringBuilder(64);
+        }
+    }
+
+    /**
+     * Extract the requested fields from the page read by {@code reader}. The reader is not read
+     * any further once all the fields have been found and it is not closed. Only the requested
+     * fields are set on the builder, the others are left empty.
+     *
+     * @param reader  The reader of the Play Store page
+     * @param builder The builder to fill with the extracted fields
+     * @throws IOException If the page could not be read
+     */
+    public void extract(Reader reader, PlayPackageInfo.Builder builder) throws IOException {
+        extract(reader, builder, null);
+    }
+
+    /**
+     * Extract the requested fields from the page read by {@code reader}, handing every changelog
+     * entry to {@code changelogListener} instead of collecting them in the builder. The reader
+     * is not read any further once the listener asks to stop.
+     *
+     * @param reader            The reader of the Play Store page
+     * @param builder           The builder to fill with the extracted fields
+     * @param changelogListener The listener of the changelog entries, if any
+     * @throws IOException If the page could not be read
+     */
+    public void extract(Reader reader, PlayPackageInfo.Builder builder,
+                        ChangelogListener changelogListener) throws IOException {
+        reset(reader);
+        this.changelogListener = changelogListener;
+
+        int c;
+        while (!isComplete() && (c = read()) != -1) {
+            if (c == '<') {
+                readMarkup(builder);
+            } else if (isCapturingOwnText()) {
+                if (c == '&') {
+                    appendEntity();
+                } else {
+                    appendText(c);
+                }
+            }
+        }
+
+        if (capturedField != null) {
+            finishCapture(builder);
+        }
+        builder.setFields(fields);
+        if (fields.contains(PlayField.CHANGELOG) && changelogListener == null) {
+            builder.setChangelogArray(changelogArray != null
+                    ? changelogArray
+                    : new ArrayList<String>(0));
+        }
+        this.reader = null;
+        this.changelogListener = null;
+    }
+
+    private void reset(Reader reader) {
+        this.reader = reader;
+        position = 0;
+        limit = 0;
+        depth = 0;
+        overflowDepth = 0;
+        capturedField = null;
+        capturedDepth = -1;
+        changelogArray = null;
+        isStopped = false;
+        pendingFields.clear();
+        pendingFields.addAll(fields);
+        for (int i = 0; i < matchedPriorities.length; i++) {
+            matchedPriorities[i] = Integer.MAX_VALUE;
+        }
+    }
+
+    private boolean isComplete() {
+        return isStopped || (pendingFields.isEmpty() && capturedField == null);
+    }
+
+    private boolean isCapturingOwnText() {
+        return capturedField != null && depth == capturedDepth + 1;
+    }
+
+    private void readMarkup(PlayPackageInfo.Builder builder) throws IOException {
+        int c = read();
+        if (c == '!') {
+            skipComment();
+        } else if (c == '?') {
+            skipUntil('>');
+        } else if (c == '/') {
+            readEndTag(builder);
+        } else if (isLetter(c)) {
+            readStartTag(c, builder);
+        } else {
+            if (isCapturingOwnText()) {
+                appendText('<');
+            }
+            if (c != -1) {
+                unread();
+            }
+        }
+    }
+
+    private void readStartTag(int first, PlayPackageInfo.Builder builder) throws IOException {
+        tagName.setLength(0);
+        for (StringBuilder attributeValue : attributeValues) {
+            attributeValue.setLength(0);
+        }
+
+        int hash = 0;
+        int c = first;
+        while (c != -1 && !isWhitespace(c) && c != '>' && c != '/') {
+            c = toLowerCase(c);
+            tagName.append((char) c);
+            hash = 31 * hash + c;
+            c = read();
+        }
+
+        boolean isSelfClosing = false;
+        while (c != -1 && c != '>') {
+            if (c == '/') {
+                isSelfClosing = true;
+                c = read();
+                continue;
+            }
+            if (isWhitespace(c)) {
+                c = read();
+                continue;
+            }
+            isSelfClosing = false;
+
+            attributeName.setLength(0);
+            while (c != -1 && !isWhitespace(c) && c != '=' && c != '>' && c != '/') {
+                attributeName.append((char) toLowerCase(c));
+                c = read();
+            }
+            while (isWhitespace(c)) {
+                c = read();
+            }
+
+            StringBuilder attributeValue = getAttributeValue(attributeName);
+
+            if (c == '=') {
+                c = read();
+                while (isWhitespace(c)) {
+                    c = read();
+                }
+                if (c == '"' || c == '\'') {
+                    int quote = c;
+                    while ((c = read()) != -1 && c != quote) {
+                        if (attributeValue != null) {
+                            attributeValue.append((char) c);
+                        }
+                    }
+                    c = read();
+                } else {
+                    while (c != -1 && !isWhitespace(c) && c != '>') {
+                        if (attributeValue != null) {
+                            attributeValue.append((char) c);
+                        }
+                        c = read();
+                    }
+                }
+            }
+        }
+
+        if (containsIgnoreCase(RAW_TEXT_ELEMENTS, tagName)) {
+            if (!isSelfClosing) {
+                skipRawText();
+            }
+            return;
+        }
+        if (overflowDepth == 0) {
+            closeImpliedElements(builder);
+        }
+        if (containsIgnoreCase(VOID_ELEMENTS, tagName)) {
+            if (isCapturingOwnText() && contentEquals(tagName, ELEMENT_BR)) {
+                appendText(' ');
+            }
+            return;
+        }
+
+        if (depth == MAX_DEPTH || overflowDepth > 0) {
+            // Elements nested too deep are ignored along with their end tags
+            if (!isSelfClosing) {
+                overflowDepth++;
+            }
+            return;
+        }
+        openElements[depth++] = hash;
+
+        if (capturedField == null) {
+            matchRules();
+        }
+        if (isSelfClosing) {
+            closeElements(depth - 1, builder);
+        }
+    }
+
+    /**
+     * Close the elements whose end tags are implied by the start tag just read, like an open
+     * paragraph before a block or the previous item of a list before the next one
+     */
+    private void closeImpliedElements(PlayPackageInfo.Builder builder) {
+        if (containsIgnoreCase(P_CLOSING_ELEMENTS, tagName)) {
+            closeInScope(P_HASHES, BUTTON_SCOPE_HASHES, builder);
+        }
+        if (contentEquals(tagName, ELEMENT_LI)) {
+            closeInScope(LI_HASHES, LIST_ITEM_SCOPE_HASHES, builder);
+        } else if (contentEquals(tagName, ELEMENT_DD) || contentEquals(tagName, ELEMENT_DT)) {
+            closeInScope(DD_DT_HASHES, DEFINITION_SCOPE_HASHES, builder);
+        }
+    }
+
+    private void closeInScope(int[] elementHashes, int[] scopeHashes,
+                              PlayPackageInfo.Builder builder) {
+        for (int i = depth - 1; i >= 0; i--) {
+            if (contains(elementHashes, openElements[i])) {
+                closeElements(i, builder);
+                return;
+            }
+            if (contains(scopeHashes, openElements[i])) {
+                return;
+            }
+        }
+    }
+
+    private void closeElements(int newDepth, PlayPackageInfo.Builder builder) {
+        depth = newDepth;
+        if (capturedField != null && depth <= capturedDepth) {
+            finishCapture(builder);
+        }
+    }
+
+    private void readEndTag(PlayPackageInfo.Builder builder) throws IOException {
+        int hash = 0;
+        int length = 0;
+        int c = read();
+        while (c != -1 && !isWhitespace(c) && c != '>' && c != '/') {
+            hash = 31 * hash + toLowerCase(c);
+            length++;
+            c = read();
+        }
+        while (c != -1 && c != '>') {
+            c = read();
+        }
+        if (length == 0) {
+            return;
+        }
+        if (overflowDepth > 0) {
+            overflowDepth--;
+            return;
+        }
+
+        for (int i = depth - 1; i >= 0; i--) {
+            if (openElements[i] == hash) {
+                closeElements(i, builder);
+                return;
+            }
+        }
+    }
+
+    private StringBuilder getAttributeValue(StringBuilder attributeName) {
+        for (int i = 0; i < attributeValues.length; i++) {
+            if (attributeValues[i].length() == 0
+                    && contentEquals(attributeName, attributeNames.get(i))) {
+                return attributeValues[i];
+            }
+        }
+        return null;
+    }
+
+    private void matchRules() {
+        for (ExtractionRule rule : rules) {
+            PlayField field = rule.getField();
+            if (!pendingFields.contains(field)) {
+                continue;
+            }
+
+            int maxPriority = rule.isMultiValued()
+                    ? Integer.MAX_VALUE
+                    : matchedPriorities[field.ordinal()];
+            int priority = rule.match(tagName, attributeValues, maxPriority);
+            if (priority >= 0) {
+                capturedField = field;
+                capturedPriority = priority;
+                capturedDepth = depth - 1;
+                text.setLength(0);
+                return;
+            }
+        }
+    }
+
+    private void finishCapture(PlayPackageInfo.Builder builder) {
+        int length = text.length();
+        if (length > 0 && text.charAt(length - 1) == ' ') {
+            text.setLength(length - 1);
+        }
+        String value = text.toString();
+
+        if (capturedField == PlayField.CHANGELOG && changelogListener != null) {
+            isStopped = !changelogListener.onChangelogEntry(value);
+        } else if (capturedField == PlayField.CHANGELOG) {
+            if (changelogArray == null) {
+                changelogArray = new ArrayList<>();
+            }
+            changelogArray.add(value);
+        } else {
+            setField(builder, capturedField, value);
+            matchedPriorities[capturedField.ordinal()] = capturedPriority;
+            if (capturedPriority == 0) {
+                pendingFields.remove(capturedField);
+            }
+        }
+        capturedField = null;
+        capturedDepth = -1;
+    }
+
+    private static void setField(PlayPackageInfo.Builder builder, PlayField field, String value) {
+        switch (field) {
+            case VERSION:
+                builder.setPackageVersion(value);
+                break;
+            case DOWNLOADS:
+                builder.setDownloads(value);
+                break;
+            case PUBLISHED_DATE:
+                builder.setPublishedDate(value);
+                break;
+            case OS_REQUIREMENTS:
+                builder.setOsRequirements(value);
+                break;
+            case CONTENT_RATING:
+                builder.setContentRating(value);
+                break;
+            case APP_RATING:
+                builder.setAppRating(value);
+                break;
+            case APP_RATING_COUNT:
+                builder.setAppRatingCount(value);
+                break;
+        }
+    }
+
+    private void appendText(int c) {
+        if (isWhitespace(c)) {
+            int length = text.length();
+            if (length > 0 && text.charAt(length - 1) != ' ') {
+                text.append(' ');
+            }
+        } else {
+            text.appendCodePoint(c);
+        }
+    }
+
+    private void appendEntity() throws IOException {
+        entity.setLength(0);
+        int c = read();
+        while (c != -1 && c != ';' && entity.length() < MAX_ENTITY_LENGTH
+                && (isLetterOrDigit(c) || c == '#')) {
+            entity.append((char) c);
+            c = read();
+        }
+
+        if (c == ';') {
+            int decoded = decodeEntity(entity);
+            if (decoded >= 0) {
+                appendText(decoded);
+                return;
+            }
+        }
+
+        appendText('&');
+        for (int i = 0; i < entity.length(); i++) {
+            appendText(entity.charAt(i));
+        }
+        if (c == ';') {
+            appendText(c);
+        } else if (c != -1) {
+            unread();
+        }
+    }
+
+    private static int decodeEntity(StringBuilder entity) {
+        int length = entity.length();
+        if (length > 1 && entity.charAt(0) == '#') {
+            boolean isHex = entity.charAt(1) == 'x' || entity.charAt(1) == 'X';
+            int radix = isHex ? 16 : 10;
+            int codePoint = 0;
+            for (int i = isHex ? 2 : 1; i < length; i++) {
+                int digit = Character.digit(entity.charAt(i), radix);
+                if (digit < 0 || codePoint > Character.MAX_CODE_POINT) {
+                    return -1;
+                }
+                codePoint = codePoint * radix + digit;
+            }
+            return codePoint <= Character.MAX_CODE_POINT ? codePoint : -1;
+        }
+        return HtmlEntities.decode(entity);
+    }
+
+    private void skipComment() throws IOException {
+        int c = read();
+        if (c != '-') {
+            if (c != '>') {
+                skipUntil('>');
+            }
+            return;
+        }
+        c = read();
+        if (c != '-') {
+            if (c != '>') {
+                skipUntil('>');
+            }
+            return;
+        }
+
+        int dashes = 0;
+        while ((c = read()) != -1) {
+            if (c == '>' && dashes >= 2) {
+                return;
+            }
+            dashes = c == '-' ? dashes + 1 : 0;
+        }
+    }
+
+    private void skipRawText() throws IOException {
+        int length = tagName.length();
+        int c = read();
+        while (c != -1) {
+            if (c != '<') {
+                c = read();
+                continue;
+            }
+            c = read();
+            if (c != '/') {
+                continue;
+            }
+
+            int matched = 0;
+            c = read();
+            while (matched < length && c != -1 && toLowerCase(c) == tagName.charAt(matched)) {
+                matched++;
+                c = read();
+            }
+            if (matched == length && (c == '>' || c == '/' || isWhitespace(c))) {
+                if (c != '>') {
+                    skipUntil('>');
+                }
+                return;
+            }
+        }
+    }
+
+    private void skipUntil(char terminator) throws IOException {
+        int c;
+        while ((c = read()) != -1 && c != terminator) {
+            // Skip everything until the terminator
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, BUFFER_SIZE);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void unread() {
+        position--;
+    }
+
+    private static int[] hashes(String... elementNames) {
+        int[] hashes = new int[elementNames.length];
+        for (int i = 0; i < elementNames.length; i++) {
+            hashes[i] = elementNames[i].hashCode();
+        }
+        return hashes;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int candidate : values) {
+            if (candidate == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsIgnoreCase(String[] values, StringBuilder value) {
+        for (String candidate : values) {
+            if (contentEquals(value, candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Listener of the changelog entries of a page, notified as soon as each entry has been read
+     */
+    public interface ChangelogListener {
+
+        /**
+         * @param entry A particular changelog entry
+         * @return True to continue reading the page, false to stop
+         */
+        boolean onChangelogEntry(String entry);
+    }
+}
@@ -0,0 +1,32 @@
+package com.aritraroy.rxmagneto.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A {@link MetricsListener} aggregating the total latency of the requests of each
+ * {@link Operation} into a {@link LatencyHistogram}. Requests served from the cache are left
+ * out, as their latency says nothing about Play Store and would hide its tail latencies, and so
+ * are canceled requests, which were cut short at an arbitrary point.
+ */
+public class HistogramMetricsListener implements MetricsListener {
+
+    private final Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+
+    public HistogramMetricsListener() {
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new LatencyHistogram());
+        }
+    }
+
+    @Override
+    public void onRequestFinished(RequestMetrics requestMetrics) {
+        if (!requestMetrics.isCacheHit() && requestMetrics.getOutcome() != Outcome.CANCELED) {
+            histograms.get(requestMetrics.getOperation()).record(requestMetrics.getTotalNanos());
+        }
+    }
+
+    public LatencyHistogram getHistogram(Operation operation) {
+        return histograms.get(operation);
+    }
+}
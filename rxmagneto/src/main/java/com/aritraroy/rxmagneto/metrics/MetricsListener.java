@@ -0,0 +1,10 @@
+package com.aritraroy.rxmagneto.metrics;
+
+/**
+ * Listener notified with the {@link RequestMetrics} of every request once it has finished. It is
+ * called on the thread the request ran on, so it must be thread-safe and return quickly.
+ */
+public interface MetricsListener {
+
+    void onRequestFinished(RequestMetrics requestMetrics);
+}
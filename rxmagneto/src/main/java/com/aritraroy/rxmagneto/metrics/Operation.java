@@ -0,0 +1,19 @@
+package com.aritraroy.rxmagneto.metrics;
+
+/**
+ * The kinds of requests RxMagneto makes to Play Store
+ */
+public enum Operation {
+    /**
+     * Fetching the information of a package, either from the cache or from Play Store
+     */
+    FETCH,
+    /**
+     * Revalidating a previous snapshot of a package while watching it for changes
+     */
+    REVALIDATE,
+    /**
+     * Verifying that the Play Store url of a package exists
+     */
+    VERIFY
+}
@@ -0,0 +1,18 @@
+package com.aritraroy.rxmagneto.metrics;
+
+/**
+ * The outcome of a request
+ */
+public enum Outcome {
+    SUCCESS,
+    /**
+     * Play Store reported that the page has not been modified and a previous snapshot was used
+     */
+    NOT_MODIFIED,
+    FAILURE,
+    /**
+     * The request was disposed before it ended, e.g. the losing attempt of a hedged request, so
+     * its result was not used
+     */
+    CANCELED
+}
@@ -0,0 +1,174 @@
+package com.aritraroy.rxmagneto.metrics;
+
+/**
+ * The timings and outcome of a single request. All durations are in nanoseconds and are -1 for
+ * phases the request did not go through, e.g. a request served from the cache never connects.
+ * <p>
+ * Pages are parsed while they are being downloaded, so the download duration is the time spent
+ * waiting for the network while reading the body and the extract duration is the rest of the
+ * time spent on the body, which includes decompressing it.
+ */
+public class RequestMetrics {
+
+    public static final long UNKNOWN = -1;
+
+    private final Operation operation;
+    private final String packageName;
+    private final boolean isCacheHit;
+    private final Outcome outcome;
+    private final Throwable error;
+    private final long bytesReceived;
+    private final long connectivityCheckNanos;
+    private final long connectNanos;
+    private final long timeToFirstByteNanos;
+    private final long downloadNanos;
+    private final long extractNanos;
+    private final long totalNanos;
+
+    private RequestMetrics(Builder builder, long totalNanos) {
+        operation = builder.operation;
+        packageName = builder.packageName;
+        isCacheHit = builder.isCacheHit;
+        outcome = builder.outcome;
+        error = builder.error;
+        bytesReceived = builder.bytesReceived;
+        connectivityCheckNanos = builder.connectivityCheckNanos;
+        connectNanos = builder.connectNanos;
+        timeToFirstByteNanos = builder.timeToFirstByteNanos;
+        downloadNanos = builder.downloadNanos;
+        extractNanos = builder.extractNanos;
+        this.totalNanos = totalNanos;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public boolean isCacheHit() {
+        return isCacheHit;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return The failure of the request or null if it succeeded
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return The no. of body bytes received over the network, before any decompression
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public long getConnectivityCheckNanos() {
+        return connectivityCheckNanos;
+    }
+
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    public long getTimeToFirstByteNanos() {
+        return timeToFirstByteNanos;
+    }
+
+    public long getDownloadNanos() {
+        return downloadNanos;
+    }
+
+    public long getExtractNanos() {
+        return extractNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public static class Builder {
+        private final Operation operation;
+        private final String packageName;
+        private final long startNanos;
+        private boolean isCacheHit;
+        private Outcome outcome = Outcome.SUCCESS;
+        private Throwable error;
+        private long bytesReceived;
+        private long connectivityCheckNanos = UNKNOWN;
+        private long connectNanos = UNKNOWN;
+        private long timeToFirstByteNanos = UNKNOWN;
+        private long downloadNanos = UNKNOWN;
+        private long extractNanos = UNKNOWN;
+
+        /**
+         * Start measuring a request. The total duration is measured from now until
+         * {@link #build()} is called.
+         *
+         * @param operation   The kind of request
+         * @param packageName The package name the request is made for
+         */
+        public Builder(Operation operation, String packageName) {
+            this.operation = operation;
+            this.packageName = packageName;
+            this.startNanos = System.nanoTime();
+        }
+
+        public Builder setCacheHit(boolean isCacheHit) {
+            this.isCacheHit = isCacheHit;
+            return this;
+        }
+
+        public Builder setOutcome(Outcome outcome) {
+            this.outcome = outcome;
+            return this;
+        }
+
+        public Builder setError(Throwable error) {
+            this.error = error;
+            this.outcome = Outcome.FAILURE;
+            return this;
+        }
+
+        public Builder setBytesReceived(long bytesReceived) {
+            this.bytesReceived = bytesReceived;
+            return this;
+        }
+
+        public Builder setConnectivityCheckNanos(long connectivityCheckNanos) {
+            this.connectivityCheckNanos = connectivityCheckNanos;
+            return this;
+        }
+
+        public Builder setConnectNanos(long connectNanos) {
+            this.connectNanos = connectNanos;
+            return this;
+        }
+
+        public Builder setTimeToFirstByteNanos(long timeToFirstByteNanos) {
+            this.timeToFirstByteNanos = timeToFirstByteNanos;
+            return this;
+        }
+
+        public Builder setDownloadNanos(long downloadNanos) {
+            this.downloadNanos = downloadNanos;
+            return this;
+        }
+
+        public Builder setExtractNanos(long extractNanos) {
+            this.extractNanos = extractNanos;
+            return this;
+        }
+
+        public RequestMetrics build() {
+            return new RequestMetrics(this, System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.aritraroy.rxmagneto.network;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Signals that a request is no longer needed, so that a {@link HttpTransport} can abort it,
+ * e.g. by closing its socket, instead of letting a blocked connect or read run until it times
+ * out. A signal can be canceled from any thread.
+ */
+public class CancellationSignal {
+
+    private boolean isCanceled;
+    private OnCancelListener onCancelListener;
+
+    /**
+     * Cancel the request and notify the listener, if any. Canceling more than once has no
+     * effect.
+     */
+    public void cancel() {
+        OnCancelListener listener;
+        synchronized (this) {
+            if (isCanceled) {
+                return;
+            }
+            isCanceled = true;
+            listener = onCancelListener;
+            onCancelListener = null;
+        }
+        if (listener != null) {
+            listener.onCancel();
+        }
+    }
+
+    public synchronized boolean isCanceled() {
+        return isCanceled;
+    }
+
+    /**
+     * @throws InterruptedIOException If the request has been canceled
+     */
+    public void throwIfCanceled() throws InterruptedIOException {
+        if (isCanceled()) {
+            throw new InterruptedIOException("Request canceled");
+        }
+    }
+
+    /**
+     * Set the listener aborting the request. It is notified right away if the request has
+     * already been canceled.
+     *
+     * @param onCancelListener The listener or null to remove it, e.g. once the request is done
+     */
+    public void setOnCancelListener(OnCancelListener onCancelListener) {
+        synchronized (this) {
+            if (!isCanceled || onCancelListener == null) {
+                this.onCancelListener = onCancelListener;
+                return;
+            }
+        }
+        onCancelListener.onCancel();
+    }
+
+    /**
+     * Listener aborting a request when it is canceled
+     */
+    public interface OnCancelListener {
+        void onCancel();
+    }
+}
@@ -0,0 +1,94 @@
+package com.aritraroy.rxmagneto.network;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A circuit breaker guarding the requests to a single host. After a given no. of consecutive
+ * failures the circuit opens and requests fail fast without reaching the host. Once the open
+ * duration has passed a single trial request is let through: the circuit closes again if it
+ * succeeds and stays open for another period otherwise.
+ */
+public class CircuitBreaker {
+
+    private enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final NanoClock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+
+    /**
+     * @param failureThreshold The no. of consecutive failures opening the circuit, 0 to never
+     *                         open it
+     * @param openDuration     The time the circuit stays open before a trial request
+     * @param unit             The unit of the open duration
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        this(failureThreshold, openDuration, unit, NanoClock.SYSTEM);
+    }
+
+    CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit, NanoClock clock) {
+        if (failureThreshold < 0) {
+            throw new IllegalArgumentException("Failure threshold cannot be negative");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = unit.toNanos(openDuration);
+        this.clock = clock;
+    }
+
+    /**
+     * Check if a request may be made now. Every permitted request must be followed by a call
+     * to {@link #onSuccess()}, {@link #onFailure()} or {@link #onCancel()}.
+     *
+     * @return True if the request may be made, false if it must fail fast
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case OPEN:
+                if (clock.nanoTime() - openedAtNanos < openDurationNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                return true;
+            case HALF_OPEN:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN
+                || (failureThreshold > 0 && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAtNanos = clock.nanoTime();
+        }
+    }
+
+    /**
+     * Release a permitted request that was canceled before its outcome was known. A canceled
+     * trial request lets the next request through as a trial again.
+     */
+    public synchronized void onCancel() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+}
@@ -0,0 +1,138 @@
+package com.aritraroy.rxmagneto.network;
+
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.Build;
+
+import com.aritraroy.rxmagneto.util.Connectivity;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.reactivex.Completable;
+import io.reactivex.subjects.BehaviorSubject;
+import io.reactivex.subjects.Subject;
+
+/**
+ * Keeps track of the connectivity of the device as the system reports changes, so that
+ * checking it before a request is a read of a volatile field instead of a call to the
+ * {@link ConnectivityManager}. Network callbacks are used on Lollipop and above and the
+ * connectivity broadcast below.
+ */
+public class ConnectivityMonitor {
+
+    private final Context context;
+    private final Subject<Boolean> connectivityChanges =
+            BehaviorSubject.<Boolean>create().toSerialized();
+    private volatile boolean isConnected;
+    private Object callback;
+
+    public ConnectivityMonitor(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Start listening to connectivity changes. The current state is queried once.
+     */
+    public synchronized void start() {
+        if (callback != null) {
+            return;
+        }
+        setConnected(Connectivity.isConnected(context));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            callback = registerNetworkCallback();
+        } else {
+            callback = registerReceiver();
+        }
+    }
+
+    /**
+     * Stop listening to connectivity changes
+     */
+    public synchronized void stop() {
+        if (callback == null) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            unregisterNetworkCallback(callback);
+        } else {
+            context.unregisterReceiver((BroadcastReceiver) callback);
+        }
+        callback = null;
+    }
+
+    public boolean isConnected() {
+        return isConnected;
+    }
+
+    /**
+     * Wait for the device to be connected
+     *
+     * @return A Completable completing as soon as the device is connected, immediately if it
+     * already is
+     */
+    public Completable awaitConnected() {
+        return connectivityChanges.filter(connected -> connected)
+                .take(1)
+                .ignoreElements();
+    }
+
+    private void setConnected(boolean isConnected) {
+        this.isConnected = isConnected;
+        connectivityChanges.onNext(isConnected);
+    }
+
+    private BroadcastReceiver registerReceiver() {
+        BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                setConnected(Connectivity.isConnected(context));
+            }
+        };
+        context.registerReceiver(receiver,
+                new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        return receiver;
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private ConnectivityManager.NetworkCallback registerNetworkCallback() {
+        final Set<Network> networks =
+                Collections.newSetFromMap(new ConcurrentHashMap<Network, Boolean>());
+        ConnectivityManager.NetworkCallback networkCallback =
+                new ConnectivityManager.NetworkCallback() {
+                    @Override
+                    public void onAvailable(Network network) {
+                        networks.add(network);
+                        setConnected(true);
+                    }
+
+                    @Override
+                    public void onLost(Network network) {
+                        networks.remove(network);
+                        setConnected(!networks.isEmpty());
+                    }
+                };
+        getConnectivityManager().registerNetworkCallback(new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build(), networkCallback);
+        return networkCallback;
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void unregisterNetworkCallback(Object networkCallback) {
+        getConnectivityManager().unregisterNetworkCallback(
+                (ConnectivityManager.NetworkCallback) networkCallback);
+    }
+
+    private ConnectivityManager getConnectivityManager() {
+        return (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+}
@@ -0,0 +1,65 @@
+package com.aritraroy.rxmagneto.network;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream counting the no. of bytes read through it and the time spent reading them
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private volatile long count;
+    private volatile long readNanos;
+
+    public CountingInputStream(InputStream inputStream) {
+        super(inputStream);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The time spent blocked in the underlying stream in nanoseconds
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long startNanos = System.nanoTime();
+        int b = super.read();
+        readNanos += System.nanoTime() - startNanos;
+        if (b != -1) {
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        long startNanos = System.nanoTime();
+        int read = super.read(buffer, offset, length);
+        readNanos += System.nanoTime() - startNanos;
+        if (read > 0) {
+            count += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long startNanos = System.nanoTime();
+        long skipped = super.skip(n);
+        readNanos += System.nanoTime() - startNanos;
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
@@ -0,0 +1,136 @@
+package com.aritraroy.rxmagneto.network;
+
+import com.aritraroy.rxmagneto.metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when a slow request is hedged, i.e. when a second identical request is sent while the
+ * first one is still running, so that the first response to arrive can be used. A request is
+ * hedged once it has been waiting for its response headers for a fixed delay or, when enough
+ * requests have been measured, for a percentile of their time to first byte. Hedges are paid
+ * for by a budget that grows with every request, so only a bounded fraction of the requests is
+ * ever sent twice.
+ */
+public class HedgingPolicy {
+
+    private static final long CREDITS_PER_HEDGE = 1000;
+    private static final int MIN_PERCENTILE_SAMPLES = 20;
+
+    private final long delayMillis;
+    private final double delayPercentile;
+    private final long creditsPerRequest;
+    private final long maxCredits;
+    private final AtomicLong credits;
+
+    private HedgingPolicy(Builder builder) {
+        delayMillis = builder.delayMillis;
+        delayPercentile = builder.delayPercentile;
+        creditsPerRequest = (long) (builder.maxHedgeRatio * CREDITS_PER_HEDGE);
+        maxCredits = builder.maxBurst * CREDITS_PER_HEDGE;
+        credits = new AtomicLong(maxCredits);
+    }
+
+    /**
+     * Get the time after which a request is hedged
+     *
+     * @param histogram The time to first byte of the requests made so far
+     * @return The delay in milliseconds
+     */
+    public long getDelayMillis(LatencyHistogram histogram) {
+        if (delayPercentile > 0 && histogram.getCount() >= MIN_PERCENTILE_SAMPLES) {
+            return TimeUnit.NANOSECONDS.toMillis(histogram.getPercentileNanos(delayPercentile));
+        }
+        return delayMillis;
+    }
+
+    /**
+     * Add the share of a new request to the hedging budget
+     */
+    public void onRequest() {
+        long current;
+        do {
+            current = credits.get();
+            if (current >= maxCredits) {
+                return;
+            }
+        } while (!credits.compareAndSet(current,
+                Math.min(maxCredits, current + creditsPerRequest)));
+    }
+
+    /**
+     * Take a hedge from the budget
+     *
+     * @return True if the request may be hedged
+     */
+    public boolean tryAcquireHedge() {
+        long current;
+        do {
+            current = credits.get();
+            if (current < CREDITS_PER_HEDGE) {
+                return false;
+            }
+        } while (!credits.compareAndSet(current, current - CREDITS_PER_HEDGE));
+        return true;
+    }
+
+    public static class Builder {
+        private long delayMillis = TimeUnit.SECONDS.toMillis(1);
+        private double delayPercentile;
+        private double maxHedgeRatio = 0.1;
+        private int maxBurst = 10;
+
+        /**
+         * Set the time after which a request is hedged, used until enough requests have been
+         * measured for the percentile delay, if any
+         *
+         * @param delay The delay
+         * @param unit  The unit of the delay
+         * @return The builder
+         */
+        public Builder setDelay(long delay, TimeUnit unit) {
+            if (delay < 0) {
+                throw new IllegalArgumentException("Delay cannot be negative");
+            }
+            this.delayMillis = unit.toMillis(delay);
+            return this;
+        }
+
+        /**
+         * Hedge a request once it has been waiting for its response headers longer than a
+         * percentile of the measured time to first byte, e.g. 95, instead of a fixed delay
+         *
+         * @param delayPercentile The percentile between 0 and 100, 0 to use the fixed delay
+         * @return The builder
+         */
+        public Builder setDelayPercentile(double delayPercentile) {
+            if (delayPercentile < 0 || delayPercentile > 100) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100");
+            }
+            this.delayPercentile = delayPercentile;
+            return this;
+        }
+
+        /**
+         * Set the budget of hedges. Every request adds {@code maxHedgeRatio} of a hedge to the
+         * budget, which holds at most {@code maxBurst} hedges.
+         *
+         * @param maxHedgeRatio The maximum no. of hedges per request, e.g. 0.1 for 10%
+         * @param maxBurst      The maximum no. of hedges that can be sent in a row
+         * @return The builder
+         */
+        public Builder setBudget(double maxHedgeRatio, int maxBurst) {
+            if (maxHedgeRatio < 0 || maxHedgeRatio > 1 || maxBurst < 0) {
+                throw new IllegalArgumentException("Invalid hedging budget");
+            }
+            this.maxHedgeRatio = maxHedgeRatio;
+            this.maxBurst = maxBurst;
+            return this;
+        }
+
+        public HedgingPolicy build() {
+            return new HedgingPolicy(this);
+        }
+    }
+}
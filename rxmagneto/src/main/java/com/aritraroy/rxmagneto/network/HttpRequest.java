@@ -0,0 +1,99 @@
+package com.aritraroy.rxmagneto.network;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An immutable request executed by a {@link HttpTransport}
+ */
+public class HttpRequest {
+
+    public static final String METHOD_GET = "GET";
+    public static final String METHOD_HEAD = "HEAD";
+
+    private final String url;
+    private final String method;
+    private final Map<String, String> headers;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final CancellationSignal cancellationSignal;
+
+    private HttpRequest(Builder builder) {
+        url = builder.url;
+        method = builder.method;
+        headers = Collections.unmodifiableMap(new LinkedHashMap<>(builder.headers));
+        connectTimeout = builder.connectTimeout;
+        readTimeout = builder.readTimeout;
+        cancellationSignal = builder.cancellationSignal;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * @return The signal canceling the request or null if it cannot be canceled
+     */
+    public CancellationSignal getCancellationSignal() {
+        return cancellationSignal;
+    }
+
+    public static class Builder {
+        private String url;
+        private String method = METHOD_GET;
+        private Map<String, String> headers = new LinkedHashMap<>();
+        private int connectTimeout;
+        private int readTimeout;
+        private CancellationSignal cancellationSignal;
+
+        public Builder(String url) {
+            this.url = url;
+        }
+
+        public Builder setMethod(String method) {
+            this.method = method;
+            return this;
+        }
+
+        public Builder setHeader(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+
+        public Builder setConnectTimeout(int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public Builder setReadTimeout(int readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        public Builder setCancellationSignal(CancellationSignal cancellationSignal) {
+            this.cancellationSignal = cancellationSignal;
+            return this;
+        }
+
+        public HttpRequest build() {
+            return new HttpRequest(this);
+        }
+    }
+}
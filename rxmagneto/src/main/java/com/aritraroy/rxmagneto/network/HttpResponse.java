@@ -0,0 +1,51 @@
+package com.aritraroy.rxmagneto.network;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A response returned by a {@link HttpTransport}. It must be closed once it is no longer needed,
+ * so that the underlying connection can be reused.
+ */
+public interface HttpResponse extends Closeable {
+
+    int getStatusCode();
+
+    /**
+     * Get the value of a response header
+     *
+     * @param name The case-insensitive name of the header
+     * @return The value of the header or null if it is missing
+     */
+    String getHeader(String name);
+
+    /**
+     * @return The no. of body bytes received over the network so far, before any decompression
+     */
+    long getBytesReceived();
+
+    /**
+     * @return The time taken to establish the connection in nanoseconds, which is close to 0
+     * when a kept alive connection is reused, or -1 if the transport does not measure it
+     */
+    long getConnectNanos();
+
+    /**
+     * @return The time from sending the request until the response headers arrived in
+     * nanoseconds, or -1 if the transport does not measure it
+     */
+    long getTimeToFirstByteNanos();
+
+    /**
+     * @return The time spent waiting for body bytes from the network so far in nanoseconds
+     */
+    long getDownloadNanos();
+
+    /**
+     * @return The stream of the response body, already decompressed if the transport
+     * negotiated a compressed transfer
+     * @throws IOException If the body could not be read
+     */
+    InputStream getBody() throws IOException;
+}
@@ -0,0 +1,27 @@
+package com.aritraroy.rxmagneto.network;
+
+import java.io.IOException;
+
+/**
+ * The transport used by RxMagneto to talk to Play Store. A custom implementation, e.g. one
+ * backed by the HTTP client the app already uses, can be passed using
+ * {@link com.aritraroy.rxmagneto.core.RxMagnetoConfig.Builder#setHttpTransport(HttpTransport)}.
+ * <p>
+ * Implementations must be thread-safe.
+ */
+public interface HttpTransport {
+
+    /**
+     * Execute a request and return as soon as the status line and headers have been received.
+     * The caller reads the body as a stream and always closes the returned response.
+     * <p>
+     * If the request has a {@link CancellationSignal}, canceling it should abort the request
+     * as soon as possible, making a blocked call or read of the body fail with an
+     * {@link IOException}.
+     *
+     * @param request The request to execute
+     * @return The {@link HttpResponse}
+     * @throws IOException If the request could not be executed
+     */
+    HttpResponse execute(HttpRequest request) throws IOException;
+}
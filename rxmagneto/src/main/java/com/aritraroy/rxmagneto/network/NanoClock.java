@@ -0,0 +1,32 @@
+package com.aritraroy.rxmagneto.network;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A monotonic time source in nanoseconds, replaced by a manual clock in tests so time based state
+ * can be checked deterministically
+ */
+public interface NanoClock {
+
+    NanoClock SYSTEM = new NanoClock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    /**
+     * A clock that keeps running while the device is asleep, for durations that should include
+     * deep sleep, such as the time to live of cached data
+     */
+    NanoClock ELAPSED_REALTIME = new NanoClock() {
+        @Override
+        public long nanoTime() {
+            return TimeUnit.MILLISECONDS.toNanos(SystemClock.elapsedRealtime());
+        }
+    };
+
+    long nanoTime();
+}
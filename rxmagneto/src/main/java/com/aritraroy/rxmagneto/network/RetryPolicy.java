@@ -0,0 +1,154 @@
+package com.aritraroy.rxmagneto.network;
+
+import com.aritraroy.rxmagneto.exceptions.HttpStatusException;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether and when a failed request is retried. Only transient failures are retried:
+ * I/O errors, 5xx responses and 429 responses. The delays grow exponentially up to a cap and are
+ * fully jittered, so many clients failing at the same time do not retry in lockstep. A
+ * {@code Retry-After} sent by Play Store is honored, and a request is not retried at all if
+ * Play Store asks to wait longer than the maximum backoff.
+ */
+public class RetryPolicy {
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    public static final RetryPolicy NONE = new Builder().setMaxRetries(0).build();
+
+    private final int maxRetries;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double multiplier;
+    private final Random random;
+
+    private RetryPolicy(Builder builder) {
+        maxRetries = builder.maxRetries;
+        initialBackoffMillis = builder.initialBackoffMillis;
+        maxBackoffMillis = builder.maxBackoffMillis;
+        multiplier = builder.multiplier;
+        random = builder.random != null ? builder.random : new Random();
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Check if a failure is transient, i.e. the same request may succeed later
+     *
+     * @param error The failure of a request
+     * @return True if the failure is worth retrying
+     */
+    public boolean isRetryable(Throwable error) {
+        if (error instanceof HttpStatusException) {
+            int statusCode = ((HttpStatusException) error).getStatusCode();
+            return statusCode == HTTP_TOO_MANY_REQUESTS
+                    || statusCode >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+        }
+        return error instanceof IOException && !(error instanceof MalformedURLException);
+    }
+
+    /**
+     * Get the delay before retrying a failed request
+     *
+     * @param retryCount The no. of the retry, starting at 1
+     * @param error      The failure of the previous attempt
+     * @return The delay in milliseconds or -1 if the request must not be retried
+     */
+    public long getRetryDelayMillis(int retryCount, Throwable error) {
+        if (retryCount > maxRetries || !isRetryable(error)) {
+            return -1;
+        }
+
+        double backoffMillis = initialBackoffMillis * Math.pow(multiplier, retryCount - 1);
+        long delayMillis;
+        synchronized (random) {
+            delayMillis = (long) (random.nextDouble() * Math.min(backoffMillis, maxBackoffMillis));
+        }
+
+        if (error instanceof HttpStatusException) {
+            long retryAfterMillis = ((HttpStatusException) error).getRetryAfterMillis();
+            if (retryAfterMillis > maxBackoffMillis) {
+                return -1;
+            }
+            delayMillis = Math.max(delayMillis, retryAfterMillis);
+        }
+        return delayMillis;
+    }
+
+    public static class Builder {
+        private int maxRetries = 3;
+        private long initialBackoffMillis = 500;
+        private long maxBackoffMillis = TimeUnit.SECONDS.toMillis(30);
+        private double multiplier = 2;
+        private Random random;
+
+        /**
+         * @param maxRetries The maximum no. of retries after the first attempt, 0 to disable
+         *                   retrying
+         * @return The builder
+         */
+        public Builder setMaxRetries(int maxRetries) {
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("Max retries cannot be negative");
+            }
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Set the backoff of the first retry. The actual delay is a random value below it.
+         *
+         * @param initialBackoff The backoff of the first retry
+         * @param unit           The unit of the backoff
+         * @return The builder
+         */
+        public Builder setInitialBackoff(long initialBackoff, TimeUnit unit) {
+            this.initialBackoffMillis = unit.toMillis(initialBackoff);
+            return this;
+        }
+
+        /**
+         * Set the cap of the backoff, which is also the longest {@code Retry-After} honored
+         *
+         * @param maxBackoff The maximum backoff
+         * @param unit       The unit of the backoff
+         * @return The builder
+         */
+        public Builder setMaxBackoff(long maxBackoff, TimeUnit unit) {
+            this.maxBackoffMillis = unit.toMillis(maxBackoff);
+            return this;
+        }
+
+        /**
+         * @param multiplier The factor the backoff grows by with every retry
+         * @return The builder
+         */
+        public Builder setMultiplier(double multiplier) {
+            if (multiplier < 1) {
+                throw new IllegalArgumentException("Multiplier must be at least 1");
+            }
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * @param random The source of the jitter, replaced in tests to pin the delays
+         * @return The builder
+         */
+        Builder setRandom(Random random) {
+            this.random = random;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
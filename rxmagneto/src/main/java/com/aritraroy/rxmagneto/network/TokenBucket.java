@@ -0,0 +1,72 @@
+package com.aritraroy.rxmagneto.network;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket limiting the rate of outbound requests. The bucket holds up to
+ * {@code burstSize} tokens and refills at a steady rate. Instead of counting tokens it keeps the
+ * time at which the bucket will be full again, so taking a token is a single compare-and-set and
+ * a caller can be told exactly how long to wait for its token.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAtNanos;
+    private final NanoClock clock;
+
+    /**
+     * @param permitsPerSecond The steady rate at which tokens are refilled
+     * @param burstSize        The maximum no. of tokens, i.e. of requests made back to back
+     */
+    public TokenBucket(double permitsPerSecond, int burstSize) {
+        this(permitsPerSecond, burstSize, NanoClock.SYSTEM);
+    }
+
+    TokenBucket(double permitsPerSecond, int burstSize, NanoClock clock) {
+        if (permitsPerSecond <= 0 || burstSize < 1) {
+            throw new IllegalArgumentException("Rate and burst size must be positive");
+        }
+        this.clock = clock;
+        intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        burstNanos = intervalNanos * burstSize;
+        fullAtNanos = new AtomicLong(clock.nanoTime() - burstNanos);
+    }
+
+    /**
+     * Take a token if one is available right now
+     *
+     * @return True if a token was taken
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            long now = clock.nanoTime();
+            long fullAt = fullAtNanos.get();
+            long newFullAt = Math.max(fullAt, now) + intervalNanos;
+            if (newFullAt - now > burstNanos) {
+                return false;
+            }
+            if (fullAtNanos.compareAndSet(fullAt, newFullAt)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reserve the next token, which may only become available in the future. The reservation
+     * cannot be cancelled.
+     *
+     * @return The time to wait for the reserved token in nanoseconds, 0 if it is available now
+     */
+    public long reserve() {
+        while (true) {
+            long now = clock.nanoTime();
+            long fullAt = fullAtNanos.get();
+            long newFullAt = Math.max(fullAt, now) + intervalNanos;
+            if (fullAtNanos.compareAndSet(fullAt, newFullAt)) {
+                return Math.max(0, newFullAt - now - burstNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.aritraroy.rxmagneto.network;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The default {@link HttpTransport} backed by {@link HttpURLConnection}. Once a response body is
+ * closed its socket goes back to the keep-alive pool of the platform and back-to-back requests
+ * to Play Store skip the TCP and TLS handshakes. A body that was not read until its end, e.g.
+ * because the extraction stopped early, is drained first if only a little of it is left, and
+ * its connection is disconnected otherwise. Concurrent connections to the same host are limited
+ * by this transport itself.
+ * <p>
+ * The keep-alive pool is shared with every other {@link HttpURLConnection} of the app and is
+ * left as the app configured it. Apps that want to keep more idle connections alive can opt in
+ * with {@link #setMaxIdleConnections(int)}.
+ * <p>
+ * Unless the request specifies its own {@code Accept-Encoding}, gzip and deflate transfers are
+ * negotiated and the body is decompressed as a stream while it is being read. Brotli is not
+ * advertised as the platform has no decoder for it.
+ * <p>
+ * Canceling a request disconnects its connection, which aborts a blocked connect or read right
+ * away. The connection of a canceled request is not reused.
+ */
+public class UrlConnectionHttpTransport implements HttpTransport {
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 4;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+    private static final String ENCODING_GZIP = "gzip";
+    private static final String ENCODING_DEFLATE = "deflate";
+    private static final int ZLIB_COMPRESSION_METHOD_DEFLATE = 8;
+    private static final long PERMIT_POLL_MILLIS = 100;
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    private static final String PROPERTY_MAX_CONNECTIONS = "http.maxConnections";
+
+    private final int maxConnectionsPerHost;
+    private final ConcurrentHashMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    public UrlConnectionHttpTransport() {
+        this(DEFAULT_MAX_CONNECTIONS_PER_HOST);
+    }
+
+    /**
+     * @param maxConnectionsPerHost The maximum no. of concurrent connections to the same host
+     */
+    public UrlConnectionHttpTransport(int maxConnectionsPerHost) {
+        if (maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("Connection limit must be at least 1");
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    /**
+     * Set the no. of idle connections the platform keeps alive for reuse, through the standard
+     * {@code http.maxConnections} system property. This affects every {@link HttpURLConnection}
+     * of the process, not only the ones of this transport, and the platform reads the property
+     * only when its pool is first created, so it must be called before any HTTP request of the
+     * app.
+     *
+     * @param maxIdleConnections The maximum no. of idle connections kept alive
+     */
+    public static void setMaxIdleConnections(int maxIdleConnections) {
+        if (maxIdleConnections < 1) {
+            throw new IllegalArgumentException("Connection limit must be at least 1");
+        }
+        System.setProperty(PROPERTY_MAX_CONNECTIONS, String.valueOf(maxIdleConnections));
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        URL url = new URL(request.getUrl());
+        Semaphore permits = getPermits(url.getHost());
+        CancellationSignal cancellationSignal = request.getCancellationSignal();
+        acquire(permits, cancellationSignal);
+
+        HttpURLConnection httpURLConnection = null;
+        try {
+            httpURLConnection = (HttpURLConnection) url.openConnection();
+            if (cancellationSignal != null) {
+                cancellationSignal.setOnCancelListener(httpURLConnection::disconnect);
+                cancellationSignal.throwIfCanceled();
+            }
+            httpURLConnection.setRequestMethod(request.getMethod());
+            httpURLConnection.setConnectTimeout(request.getConnectTimeout());
+            httpURLConnection.setReadTimeout(request.getReadTimeout());
+            httpURLConnection.setRequestProperty(HEADER_ACCEPT_ENCODING, ACCEPTED_ENCODINGS);
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                httpURLConnection.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            long startNanos = System.nanoTime();
+            httpURLConnection.connect();
+            long connectedNanos = System.nanoTime();
+            int statusCode = httpURLConnection.getResponseCode();
+            return new UrlConnectionHttpResponse(httpURLConnection, statusCode, permits,
+                    cancellationSignal, connectedNanos - startNanos,
+                    System.nanoTime() - connectedNanos);
+        } catch (IOException | RuntimeException e) {
+            if (cancellationSignal != null) {
+                cancellationSignal.setOnCancelListener(null);
+            }
+            permits.release();
+            if (httpURLConnection != null) {
+                httpURLConnection.disconnect();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for a connection permit of a host. A cancelable request checks its signal while it
+     * is waiting, so that it does not hold its thread until a permit is released.
+     */
+    private static void acquire(Semaphore permits, CancellationSignal cancellationSignal)
+            throws IOException {
+        try {
+            if (cancellationSignal == null) {
+                permits.acquire();
+                return;
+            }
+            while (!permits.tryAcquire(PERMIT_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                cancellationSignal.throwIfCanceled();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection");
+        }
+        if (cancellationSignal.isCanceled()) {
+            permits.release();
+            cancellationSignal.throwIfCanceled();
+        }
+    }
+
+    private Semaphore getPermits(String host) {
+        Semaphore permits = hostPermits.get(host);
+        if (permits == null) {
+            Semaphore newPermits = new Semaphore(maxConnectionsPerHost);
+            permits = hostPermits.putIfAbsent(host, newPermits);
+            if (permits == null) {
+                permits = newPermits;
+            }
+        }
+        return permits;
+    }
+
+    /**
+     * Wrap a body stream with a decompressing stream matching its content encoding
+     *
+     * @param inputStream     The raw body stream
+     * @param contentEncoding The value of the Content-Encoding header, if any
+     * @return The decompressed body stream
+     * @throws IOException If the compressed stream is malformed
+     */
+    static InputStream decode(InputStream inputStream, String contentEncoding)
+            throws IOException {
+        if (contentEncoding == null) {
+            return inputStream;
+        }
+        String encoding = contentEncoding.trim().toLowerCase(Locale.US);
+        if (ENCODING_GZIP.equals(encoding) || "x-gzip".equals(encoding)) {
+            return new GZIPInputStream(inputStream, BUFFER_SIZE);
+        }
+        if (ENCODING_DEFLATE.equals(encoding)) {
+            // Servers disagree on whether "deflate" means a zlib wrapped or a raw stream
+            BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream,
+                    BUFFER_SIZE);
+            bufferedInputStream.mark(2);
+            int first = bufferedInputStream.read();
+            int second = bufferedInputStream.read();
+            bufferedInputStream.reset();
+            boolean isZlibWrapped = first != -1 && second != -1
+                    && (first & 0x0f) == ZLIB_COMPRESSION_METHOD_DEFLATE
+                    && ((first << 8) | second) % 31 == 0;
+            return new InflaterInputStream(bufferedInputStream, new Inflater(!isZlibWrapped),
+                    BUFFER_SIZE);
+        }
+        return inputStream;
+    }
+
+    private static class UrlConnectionHttpResponse implements HttpResponse {
+        private final HttpURLConnection httpURLConnection;
+        private final int statusCode;
+        private final Semaphore permits;
+        private final CancellationSignal cancellationSignal;
+        private final long connectNanos;
+        private final long timeToFirstByteNanos;
+        private final AtomicBoolean isClosed = new AtomicBoolean();
+        private CountingInputStream rawBody;
+        private InputStream body;
+
+        private UrlConnectionHttpResponse(HttpURLConnection httpURLConnection, int statusCode,
+                                          Semaphore permits,
+                                          CancellationSignal cancellationSignal,
+                                          long connectNanos, long timeToFirstByteNanos) {
+            this.httpURLConnection = httpURLConnection;
+            this.statusCode = statusCode;
+            this.permits = permits;
+            this.cancellationSignal = cancellationSignal;
+            this.connectNanos = connectNanos;
+            this.timeToFirstByteNanos = timeToFirstByteNanos;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return httpURLConnection.getHeaderField(name);
+        }
+
+        @Override
+        public long getBytesReceived() {
+            CountingInputStream countingInputStream = rawBody;
+            return countingInputStream != null ? countingInputStream.getCount() : 0;
+        }
+
+        @Override
+        public long getConnectNanos() {
+            return connectNanos;
+        }
+
+        @Override
+        public long getTimeToFirstByteNanos() {
+            return timeToFirstByteNanos;
+        }
+
+        @Override
+        public long getDownloadNanos() {
+            CountingInputStream countingInputStream = rawBody;
+            return countingInputStream != null ? countingInputStream.getReadNanos() : 0;
+        }
+
+        @Override
+        public synchronized InputStream getBody() throws IOException {
+            if (body == null) {
+                InputStream inputStream = openRawBody();
+                rawBody = new CountingInputStream(inputStream != null
+                        ? inputStream
+                        : new ByteArrayInputStream(new byte[0]));
+                boolean hasBody = statusCode != HttpURLConnection.HTTP_NO_CONTENT
+                        && statusCode != HttpURLConnection.HTTP_NOT_MODIFIED;
+                body = hasBody
+                        ? decode(rawBody, httpURLConnection.getHeaderField(HEADER_CONTENT_ENCODING))
+                        : rawBody;
+            }
+            return body;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!isClosed.compareAndSet(false, true)) {
+                return;
+            }
+            if (cancellationSignal != null) {
+                // The connection goes back to the pool, it must not be disconnected anymore
+                cancellationSignal.setOnCancelListener(null);
+            }
+            try {
+                InputStream inputStream;
+                InputStream rawInputStream;
+                synchronized (this) {
+                    inputStream = body != null ? body : openRawBody();
+                    rawInputStream = rawBody != null ? rawBody : inputStream;
+                }
+                if (inputStream != null) {
+                    boolean isDrained = drain(rawInputStream);
+                    inputStream.close();
+                    if (!isDrained) {
+                        httpURLConnection.disconnect();
+                    }
+                }
+            } finally {
+                permits.release();
+            }
+        }
+
+        /**
+         * Read the rest of a body that was not read until its end, so that its connection can
+         * be reused. More than {@link #MAX_DRAIN_BYTES} left are not worth downloading just for
+         * that, and the connection of a canceled request is never reused.
+         *
+         * @return True if the end of the body has been reached
+         */
+        private boolean drain(InputStream rawInputStream) {
+            if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+                return false;
+            }
+            try {
+                byte[] buffer = null;
+                long drainedBytes = 0;
+                while (drainedBytes <= MAX_DRAIN_BYTES) {
+                    if (buffer == null) {
+                        // Most bodies are already at their end, which needs no buffer
+                        if (rawInputStream.read() == -1) {
+                            return true;
+                        }
+                        buffer = new byte[BUFFER_SIZE];
+                        drainedBytes++;
+                        continue;
+                    }
+                    int read = rawInputStream.read(buffer);
+                    if (read == -1) {
+                        return true;
+                    }
+                    drainedBytes += read;
+                }
+                return false;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        private InputStream openRawBody() throws IOException {
+            return statusCode >= HttpURLConnection.HTTP_BAD_REQUEST
+                    ? httpURLConnection.getErrorStream()
+                    : httpURLConnection.getInputStream();
+        }
+    }
+}
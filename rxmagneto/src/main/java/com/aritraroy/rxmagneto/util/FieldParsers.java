@@ -0,0 +1,224 @@
+package com.aritraroy.rxmagneto.util;
+
+/**
+ * Parsers turning the raw text of Play Store fields into typed values. They scan the text in
+ * place without allocating, tolerate the grouping separators of any locale and return a
+ * sentinel value instead of throwing when the text cannot be parsed or overflows.
+ */
+public final class FieldParsers {
+
+    public static final long UNKNOWN = -1;
+
+    private static final String[] MONTHS = {"jan", "feb", "mar", "apr", "may", "jun", "jul",
+            "aug", "sep", "oct", "nov", "dec"};
+    private static final int MONTH_PREFIX_LENGTH = 3;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final int MAX_DATE_DIGITS = 8;
+
+    private FieldParsers() {
+    }
+
+    /**
+     * Parse the lower bound of a downloads range, e.g. 1000000 for "1,000,000 - 5,000,000" or
+     * "1,000,000+"
+     *
+     * @param downloads The raw downloads text
+     * @return The lower bound or {@link #UNKNOWN}
+     */
+    public static long parseMinDownloads(CharSequence downloads) {
+        if (downloads == null) {
+            return UNKNOWN;
+        }
+        return parseLong(downloads, 0, indexOfRangeSeparator(downloads));
+    }
+
+    /**
+     * Parse the upper bound of a downloads range, e.g. 5000000 for "1,000,000 - 5,000,000"
+     *
+     * @param downloads The raw downloads text
+     * @return The upper bound or {@link #UNKNOWN} if the text is not a closed range
+     */
+    public static long parseMaxDownloads(CharSequence downloads) {
+        if (downloads == null) {
+            return UNKNOWN;
+        }
+        int separator = indexOfRangeSeparator(downloads);
+        return separator < downloads.length()
+                ? parseLong(downloads, separator + 1, downloads.length())
+                : UNKNOWN;
+    }
+
+    /**
+     * Parse a count with grouping separators, e.g. 123456 for "123,456" or "123 456"
+     *
+     * @param count The raw count text
+     * @return The count or {@link #UNKNOWN}
+     */
+    public static long parseCount(CharSequence count) {
+        return count != null ? parseLong(count, 0, count.length()) : UNKNOWN;
+    }
+
+    /**
+     * Parse a rating using either a dot or a comma as decimal separator, e.g. 4.3 for "4.3"
+     * or "4,3"
+     *
+     * @param rating The raw rating text
+     * @return The rating or {@link Float#NaN}
+     */
+    public static float parseRating(CharSequence rating) {
+        if (rating == null) {
+            return Float.NaN;
+        }
+
+        long integerPart = 0;
+        long fraction = 0;
+        long fractionScale = 1;
+        boolean hasDigits = false;
+        boolean isFraction = false;
+        for (int i = 0; i < rating.length(); i++) {
+            char c = rating.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigits = true;
+                if (isFraction) {
+                    if (fractionScale < 1000000) {
+                        fraction = fraction * 10 + (c - '0');
+                        fractionScale *= 10;
+                    }
+                } else if (integerPart > (Long.MAX_VALUE - 9) / 10) {
+                    return Float.NaN;
+                } else {
+                    integerPart = integerPart * 10 + (c - '0');
+                }
+            } else if ((c == '.' || c == ',') && hasDigits && !isFraction) {
+                isFraction = true;
+            } else if (hasDigits) {
+                break;
+            }
+        }
+        return hasDigits ? (float) (integerPart + (double) fraction / fractionScale) : Float.NaN;
+    }
+
+    /**
+     * Parse a published date into the epoch millis of its midnight in UTC. Dates with English
+     * month names in any order, e.g. "March 14, 2017", "14 Mar 2017", and ISO dates, e.g.
+     * "2017-03-14", are supported.
+     *
+     * @param date The raw date text
+     * @return The epoch millis or {@link #UNKNOWN}
+     */
+    public static long parseDate(CharSequence date) {
+        if (date == null) {
+            return UNKNOWN;
+        }
+
+        int year = -1;
+        int month = -1;
+        int day = -1;
+        int length = date.length();
+        int i = 0;
+        while (i < length) {
+            char c = date.charAt(i);
+            if (c >= '0' && c <= '9') {
+                int value = 0;
+                int digits = 0;
+                while (i < length && (c = date.charAt(i)) >= '0' && c <= '9') {
+                    if (digits < MAX_DATE_DIGITS) {
+                        value = value * 10 + (c - '0');
+                    }
+                    digits++;
+                    i++;
+                }
+                if (digits == 4 && year < 0) {
+                    year = value;
+                } else if (year >= 0 && month < 0 && day < 0 && value >= 1 && value <= 12) {
+                    // An ISO date, the month follows the year
+                    month = value;
+                } else if (day < 0 && value >= 1 && value <= 31) {
+                    day = value;
+                }
+            } else if (Character.isLetter(c)) {
+                int start = i;
+                while (i < length && Character.isLetter(date.charAt(i))) {
+                    i++;
+                }
+                if (month < 0) {
+                    month = parseMonth(date, start, i);
+                }
+            } else {
+                i++;
+            }
+        }
+
+        if (year < 0 || month < 1 || day < 1) {
+            return UNKNOWN;
+        }
+        return daysFromEpoch(year, month, day) * MILLIS_PER_DAY;
+    }
+
+    private static int indexOfRangeSeparator(CharSequence text) {
+        boolean hasDigits = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigits = true;
+            } else if (hasDigits && (c == '-' || c == '\u2013' || c == '\u2014')) {
+                return i;
+            }
+        }
+        return text.length();
+    }
+
+    /**
+     * Parse the first integer in a region of the text, skipping the grouping separators within
+     */
+    private static long parseLong(CharSequence text, int start, int end) {
+        long value = 0;
+        boolean hasDigits = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (value > (Long.MAX_VALUE - (c - '0')) / 10) {
+                    return UNKNOWN;
+                }
+                value = value * 10 + (c - '0');
+                hasDigits = true;
+            } else if (hasDigits && !isGroupingSeparator(c)) {
+                break;
+            }
+        }
+        return hasDigits ? value : UNKNOWN;
+    }
+
+    private static boolean isGroupingSeparator(char c) {
+        return c == ',' || c == '.' || c == ' ' || c == '\'' || c == '\u00a0' || c == '\u202f';
+    }
+
+    private static int parseMonth(CharSequence text, int start, int end) {
+        if (end - start < MONTH_PREFIX_LENGTH) {
+            return -1;
+        }
+        for (int month = 0; month < MONTHS.length; month++) {
+            String prefix = MONTHS[month];
+            boolean matches = true;
+            for (int i = 0; i < MONTH_PREFIX_LENGTH && matches; i++) {
+                matches = Character.toLowerCase(text.charAt(start + i)) == prefix.charAt(i);
+            }
+            if (matches) {
+                return month + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Count the days from 1970-01-01 to a date of the proleptic Gregorian calendar
+     */
+    private static long daysFromEpoch(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
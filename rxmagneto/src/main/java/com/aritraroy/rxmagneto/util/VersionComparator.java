@@ -0,0 +1,152 @@
+package com.aritraroy.rxmagneto.util;
+
+import java.util.Comparator;
+
+/**
+ * Compares version names the way semantic versioning orders them. Version names are split into
+ * numeric and alphabetic parts, numeric parts are compared by value and alphabetic parts
+ * case-insensitively, so "1.10" is newer than "1.9". Missing numeric parts count as zero, so
+ * "1.0" equals "1.0.0", and a pre-release qualifier makes a version older than the plain one,
+ * so "2.0-beta" is older than "2.0". Build metadata following a '+' is ignored.
+ * <p>
+ * The version names are scanned in place without allocating.
+ */
+public final class VersionComparator implements Comparator<String> {
+
+    public static final VersionComparator INSTANCE = new VersionComparator();
+
+    private static final int END = 0;
+    private static final int NUMBER = 1;
+    private static final int TEXT = 2;
+
+    private VersionComparator() {
+    }
+
+    /**
+     * Check if a version name is newer than another one
+     *
+     * @param version      A particular version name
+     * @param otherVersion The version name to compare with
+     * @return True if the first version is newer
+     */
+    public static boolean isNewer(String version, String otherVersion) {
+        return INSTANCE.compare(version, otherVersion) > 0;
+    }
+
+    @Override
+    public int compare(String first, String second) {
+        int firstLength = versionLength(first);
+        int secondLength = versionLength(second);
+        int i = 0;
+        int j = 0;
+        while (true) {
+            i = skipSeparators(first, i, firstLength);
+            j = skipSeparators(second, j, secondLength);
+            int firstType = partType(first, i, firstLength);
+            int secondType = partType(second, j, secondLength);
+            if (firstType == END && secondType == END) {
+                return 0;
+            }
+
+            if (firstType == TEXT && secondType == TEXT) {
+                int firstEnd = endOfPart(first, i, firstLength);
+                int secondEnd = endOfPart(second, j, secondLength);
+                int result = compareText(first, i, firstEnd, second, j, secondEnd);
+                if (result != 0) {
+                    return result;
+                }
+                i = firstEnd;
+                j = secondEnd;
+            } else if (firstType == TEXT || secondType == TEXT) {
+                // A qualifier is older than a release and a release is older than a further
+                // numeric part, e.g. 2.0-beta < 2.0 < 2.0.1
+                return firstType == TEXT ? -1 : 1;
+            } else {
+                // Both parts are numeric or one of the versions has ended, which counts as zero
+                int firstEnd = firstType == NUMBER ? endOfPart(first, i, firstLength) : i;
+                int secondEnd = secondType == NUMBER ? endOfPart(second, j, secondLength) : j;
+                int result = compareNumbers(first, i, firstEnd, second, j, secondEnd);
+                if (result != 0) {
+                    return result;
+                }
+                i = firstEnd;
+                j = secondEnd;
+            }
+        }
+    }
+
+    private static int versionLength(String version) {
+        if (version == null) {
+            return 0;
+        }
+        int index = version.indexOf('+');
+        return index >= 0 ? index : version.length();
+    }
+
+    private static int skipSeparators(String version, int index, int length) {
+        while (index < length && !Character.isLetterOrDigit(version.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int partType(String version, int index, int length) {
+        if (index >= length) {
+            return END;
+        }
+        return isDigit(version.charAt(index)) ? NUMBER : TEXT;
+    }
+
+    private static int endOfPart(String version, int index, int length) {
+        boolean isNumber = isDigit(version.charAt(index));
+        while (index < length) {
+            char c = version.charAt(index);
+            if (!Character.isLetterOrDigit(c) || isDigit(c) != isNumber) {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Compare two numbers of any length by their digits, so that they can never overflow
+     */
+    private static int compareNumbers(String first, int firstStart, int firstEnd,
+                                      String second, int secondStart, int secondEnd) {
+        while (firstStart < firstEnd && first.charAt(firstStart) == '0') {
+            firstStart++;
+        }
+        while (secondStart < secondEnd && second.charAt(secondStart) == '0') {
+            secondStart++;
+        }
+        int lengthDifference = (firstEnd - firstStart) - (secondEnd - secondStart);
+        if (lengthDifference != 0) {
+            return lengthDifference < 0 ? -1 : 1;
+        }
+        for (; firstStart < firstEnd; firstStart++, secondStart++) {
+            int difference = first.charAt(firstStart) - second.charAt(secondStart);
+            if (difference != 0) {
+                return difference < 0 ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    private static int compareText(String first, int firstStart, int firstEnd,
+                                   String second, int secondStart, int secondEnd) {
+        for (; firstStart < firstEnd && secondStart < secondEnd; firstStart++, secondStart++) {
+            int difference = Character.toLowerCase(first.charAt(firstStart))
+                    - Character.toLowerCase(second.charAt(secondStart));
+            if (difference != 0) {
+                return difference < 0 ? -1 : 1;
+            }
+        }
+        int lengthDifference = (firstEnd - firstStart) - (secondEnd - secondStart);
+        return lengthDifference < 0 ? -1 : (lengthDifference > 0 ? 1 : 0);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
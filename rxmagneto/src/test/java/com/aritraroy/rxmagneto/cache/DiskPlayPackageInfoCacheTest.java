@@ -0,0 +1,204 @@
+package com.aritraroy.rxmagneto.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.aritraroy.rxmagneto.domain.PlayField;
+import com.aritraroy.rxmagneto.domain.PlayPackageInfo;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+
+public class DiskPlayPackageInfoCacheTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+
+    @Before
+    public void setUp() {
+        directory = new File(temporaryFolder.getRoot(), "cache");
+    }
+
+    @Test
+    public void readsBackWhatWasStored() {
+        DiskPlayPackageInfoCache cache = new DiskPlayPackageInfoCache(directory, 1024 * 1024);
+        PlayPackageInfo playPackageInfo = newInfo("a");
+        cache.put(playPackageInfo, "\"etag\"", "Tue, 14 Mar 2017 10:00:00 GMT");
+
+        DiskPlayPackageInfoCache.Entry entry = cache.get("a");
+        assertEquals("\"etag\"", entry.getETag());
+        assertEquals("Tue, 14 Mar 2017 10:00:00 GMT", entry.getLastModified());
+        PlayPackageInfo stored = entry.getPlayPackageInfo();
+        assertEquals("a", stored.getPackageName());
+        assertEquals(playPackageInfo.getPackageUrl(), stored.getPackageUrl());
+        assertTrue(stored.isUrlValid());
+        for (PlayField field : PlayField.values()) {
+            assertEquals(field.name(), playPackageInfo.getValue(field), stored.getValue(field));
+        }
+        assertEquals(EnumSet.allOf(PlayField.class), stored.getFields());
+        assertEquals(1000, stored.getMinDownloads());
+    }
+
+    @Test
+    public void keepsTheFieldsOfAProjection() {
+        DiskPlayPackageInfoCache cache = new DiskPlayPackageInfoCache(directory, 1024 * 1024);
+        cache.put(newInfo("a").project(EnumSet.of(PlayField.VERSION, PlayField.CHANGELOG)),
+                null, "Tue, 14 Mar 2017 10:00:00 GMT");
+
+        DiskPlayPackageInfoCache.Entry entry = cache.get("a");
+        assertNull(entry.getETag());
+        PlayPackageInfo stored = entry.getPlayPackageInfo();
+        assertEquals(EnumSet.of(PlayField.VERSION, PlayField.CHANGELOG), stored.getFields());
+        assertEquals("1.0", stored.getPackageVersion());
+        assertEquals(Arrays.asList("Bug fixes", "Emoji 🎉"), stored.getChangelogArray());
+        assertNull(stored.getDownloads());
+    }
+
+    @Test
+    public void tellsAnEmptyChangelogFromAMissingOne() {
+        DiskPlayPackageInfoCache cache = new DiskPlayPackageInfoCache(directory, 1024 * 1024);
+        cache.put(new PlayPackageInfo.Builder("a", "url")
+                .setChangelogArray(Collections.<String>emptyList())
+                .build(), "etag", null);
+        cache.put(new PlayPackageInfo.Builder("b", "url").build(), "etag", null);
+
+        assertEquals(Collections.emptyList(),
+                cache.get("a").getPlayPackageInfo().getChangelogArray());
+        assertNull(cache.get("b").getPlayPackageInfo().getChangelogArray());
+    }
+
+    @Test
+    public void keepsValuesLongerThan64Kilobytes() {
+        DiskPlayPackageInfoCache cache = new DiskPlayPackageInfoCache(directory, 1024 * 1024);
+        char[] chars = new char[100000];
+        Arrays.fill(chars, 'é');
+        String longEntry = new String(chars);
+        cache.put(new PlayPackageInfo.Builder("a", "url")
+                .setChangelogArray(Collections.singletonList(longEntry))
+                .build(), "etag", null);
+
+        assertEquals(longEntry,
+                cache.get("a").getPlayPackageInfo().getChangelogArray().get(0));
+    }
+
+    @Test
+    public void skipsASnapshotWithoutValidators() {
+        DiskPlayPackageInfoCache cache = new DiskPlayPackageInfoCache(directory, 1024 * 1024);
+        cache.put(newInfo("a"), null, null);
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void deletesATruncatedFile() throws IOException {
+        DiskPlayPackageInfoCache cache = new DiskPlayPackageInfoCache(directory, 1024 * 1024);
+        cache.put(newInfo("a"), "etag", null);
+        File file = getFile("a");
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(file.length() / 2);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        assertNull(cache.get("a"));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void deletesAFileWithAnImpossibleLength() throws IOException {
+        writeFile("a", 0x524d4743, 2, 0, Integer.MAX_VALUE);
+        assertNull(new DiskPlayPackageInfoCache(directory, 1024 * 1024).get("a"));
+        assertFalse(getFile("a").exists());
+    }
+
+    @Test
+    public void deletesAFileOfAnotherFormat() throws IOException {
+        writeFile("a", 0x12345678, 2);
+        writeFile("b", 0x524d4743, 99);
+        DiskPlayPackageInfoCache cache = new DiskPlayPackageInfoCache(directory, 1024 * 1024);
+
+        assertNull(cache.get("a"));
+        assertFalse(getFile("a").exists());
+        assertNull(cache.get("b"));
+        assertFalse(getFile("b").exists());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedFiles() {
+        DiskPlayPackageInfoCache sizing = new DiskPlayPackageInfoCache(
+                new File(temporaryFolder.getRoot(), "sizing"), 1024 * 1024);
+        sizing.put(newInfo("a"), "etag", null);
+        long fileSize = new File(new File(temporaryFolder.getRoot(), "sizing"), "a.bin")
+                .length();
+
+        DiskPlayPackageInfoCache cache = new DiskPlayPackageInfoCache(directory,
+                fileSize * 5 / 2);
+        cache.put(newInfo("a"), "etag", null);
+        cache.put(newInfo("b"), "etag", null);
+        long now = System.currentTimeMillis();
+        assertTrue(getFile("a").setLastModified(now - 20000));
+        assertTrue(getFile("b").setLastModified(now - 10000));
+        assertNotNull(cache.get("a"));
+        cache.put(newInfo("c"), "etag", null);
+
+        assertTrue(getFile("a").exists());
+        assertFalse(getFile("b").exists());
+        assertTrue(getFile("c").exists());
+    }
+
+    @Test
+    public void evictsEverything() {
+        DiskPlayPackageInfoCache cache = new DiskPlayPackageInfoCache(directory, 1024 * 1024);
+        cache.put(newInfo("a"), "etag", null);
+        cache.evictAll();
+        assertNull(cache.get("a"));
+    }
+
+    private File getFile(String packageName) {
+        return new File(directory, packageName + ".bin");
+    }
+
+    private void writeFile(String packageName, int... values) throws IOException {
+        assertTrue(directory.mkdirs() || directory.isDirectory());
+        DataOutputStream outputStream = new DataOutputStream(
+                new FileOutputStream(getFile(packageName)));
+        try {
+            for (int value : values) {
+                outputStream.writeInt(value);
+            }
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static PlayPackageInfo newInfo(String packageName) {
+        return new PlayPackageInfo.Builder(packageName,
+                "https://play.google.com/store/apps/details?id=" + packageName)
+                .setIsUrlValid(true)
+                .setPackageVersion("1.0")
+                .setDownloads("1,000 - 5,000")
+                .setPublishedDate("March 14, 2017")
+                .setOsRequirements("4.0 and up")
+                .setContentRating("Everyone")
+                .setAppRating("4.5")
+                .setAppRatingCount("12,345")
+                .setChangelogArray(Arrays.asList("Bug fixes", "Emoji 🎉"))
+                .build();
+    }
+}
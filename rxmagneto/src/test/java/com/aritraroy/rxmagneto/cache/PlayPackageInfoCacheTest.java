@@ -0,0 +1,197 @@
+package com.aritraroy.rxmagneto.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.content.ComponentCallbacks2;
+
+import com.aritraroy.rxmagneto.core.RxMagnetoConfig;
+import com.aritraroy.rxmagneto.domain.PlayField;
+import com.aritraroy.rxmagneto.domain.PlayPackageInfo;
+import com.aritraroy.rxmagneto.network.NanoClock;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class PlayPackageInfoCacheTest {
+
+    private static final Set<PlayField> ALL_FIELDS = EnumSet.allOf(PlayField.class);
+
+    private long nowNanos = TimeUnit.HOURS.toNanos(1);
+    private final NanoClock clock = () -> nowNanos;
+
+    @Test
+    public void servesEveryFieldForItsOwnTimeToLive() {
+        PlayPackageInfoCache cache = newCache(new RxMagnetoConfig.Builder()
+                .setCacheTtl(PlayField.DOWNLOADS, 1, TimeUnit.MINUTES));
+        cache.put(newInfo("a", "1.0"));
+
+        advance(1, TimeUnit.MINUTES);
+        assertNotNull(cache.get("a", EnumSet.of(PlayField.DOWNLOADS)));
+        advance(1, TimeUnit.MILLISECONDS);
+        assertNull(cache.get("a", EnumSet.of(PlayField.DOWNLOADS)));
+        assertNull(cache.get("a", ALL_FIELDS));
+        assertEquals("1.0",
+                cache.get("a", EnumSet.of(PlayField.VERSION)).getPackageVersion());
+
+        CacheStats stats = cache.getStats();
+        assertEquals(2, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+    }
+
+    @Test
+    public void countsAnUnknownPackageAsAMiss() {
+        PlayPackageInfoCache cache = newCache(new RxMagnetoConfig.Builder());
+        assertNull(cache.get("a", ALL_FIELDS));
+        assertEquals(1, cache.getStats().getMissCount());
+    }
+
+    @Test
+    public void dropsAnEntryOnceItIsPastTheStalenessWindow() {
+        PlayPackageInfoCache cache = newCache(new RxMagnetoConfig.Builder()
+                .setMaxStaleness(10, TimeUnit.MINUTES));
+        cache.put(newInfo("a", "1.0"));
+
+        advance(6, TimeUnit.MINUTES);
+        assertNull(cache.get("a", ALL_FIELDS));
+        assertEquals("1.0", cache.getStale("a", ALL_FIELDS).getPackageVersion());
+
+        advance(10, TimeUnit.MINUTES);
+        assertNull(cache.getStale("a", ALL_FIELDS));
+        assertNull(cache.get("a", ALL_FIELDS));
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    @Test
+    public void projectsTheFieldsThatAreStillFresh() {
+        PlayPackageInfoCache cache = newCache(new RxMagnetoConfig.Builder()
+                .setCacheTtl(PlayField.CHANGELOG, 1, TimeUnit.MINUTES));
+        cache.put(newInfo("a", "1.0"));
+        advance(2, TimeUnit.MINUTES);
+
+        PlayPackageInfo fresh = cache.getFresh("a",
+                EnumSet.of(PlayField.VERSION, PlayField.CHANGELOG));
+        assertEquals(EnumSet.of(PlayField.VERSION), fresh.getFields());
+        assertEquals("1.0", fresh.getPackageVersion());
+        assertNull(fresh.getChangelogArray());
+        assertNull(cache.getFresh("a", EnumSet.of(PlayField.CHANGELOG)));
+        assertNull(cache.getFresh("b", ALL_FIELDS));
+    }
+
+    @Test
+    public void mergesAProjectionIntoTheEntryOfItsPackage() {
+        PlayPackageInfoCache cache = newCache(new RxMagnetoConfig.Builder());
+        cache.put(newInfo("a", "1.0"));
+        advance(4, TimeUnit.MINUTES);
+        cache.put(newInfo("a", "2.0").project(EnumSet.of(PlayField.VERSION)));
+        advance(2, TimeUnit.MINUTES);
+
+        // Only the version has been fetched again, the rest has expired by now
+        PlayPackageInfo version = cache.get("a", EnumSet.of(PlayField.VERSION));
+        assertEquals("2.0", version.getPackageVersion());
+        assertEquals(ALL_FIELDS, version.getFields());
+        assertEquals("1,000 - 5,000", version.getDownloads());
+        assertNull(cache.get("a", EnumSet.of(PlayField.DOWNLOADS)));
+    }
+
+    @Test
+    public void replacesTheEntryWithACompleteFetch() {
+        PlayPackageInfoCache cache = newCache(new RxMagnetoConfig.Builder());
+        cache.put(newInfo("a", "1.0"));
+        cache.put(new PlayPackageInfo.Builder("a", "url").setPackageVersion("2.0").build());
+
+        PlayPackageInfo playPackageInfo = cache.get("a", ALL_FIELDS);
+        assertEquals("2.0", playPackageInfo.getPackageVersion());
+        assertNull(playPackageInfo.getDownloads());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntriesBySize() {
+        int entrySize = sizeOf(newInfo("a", "1.0"));
+        PlayPackageInfoCache cache = newCache(new RxMagnetoConfig.Builder()
+                .setMemoryCacheSize(3 * entrySize));
+        cache.put(newInfo("a", "1.0"));
+        cache.put(newInfo("b", "1.0"));
+        cache.put(newInfo("c", "1.0"));
+        cache.get("a", ALL_FIELDS);
+
+        // An entry with a long changelog needs the room of more than one other entry
+        PlayPackageInfo large = new PlayPackageInfo.Builder("d", "url")
+                .setChangelogArray(Collections.singletonList(repeat('x', entrySize / 2)))
+                .build();
+        cache.put(large);
+
+        assertNotNull(cache.get("a", ALL_FIELDS));
+        assertNull(cache.get("b", ALL_FIELDS));
+        assertNull(cache.get("c", ALL_FIELDS));
+        assertNotNull(cache.get("d", ALL_FIELDS));
+        assertEquals(2, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void skipsAnEntryLargerThanTheWholeCache() {
+        PlayPackageInfoCache cache = newCache(new RxMagnetoConfig.Builder()
+                .setMemoryCacheSize(1024));
+        cache.put(newInfo("a", "1.0"));
+        cache.put(new PlayPackageInfo.Builder("b", "url")
+                .setChangelogArray(Collections.singletonList(repeat('x', 1024)))
+                .build());
+
+        assertNotNull(cache.get("a", ALL_FIELDS));
+        assertNull(cache.get("b", ALL_FIELDS));
+    }
+
+    @Test
+    public void trimsAccordingToTheMemoryPressure() {
+        int entrySize = sizeOf(newInfo("a", "1.0"));
+        PlayPackageInfoCache cache = newCache(new RxMagnetoConfig.Builder()
+                .setMemoryCacheSize(4 * entrySize));
+        for (String packageName : Arrays.asList("a", "b", "c", "d")) {
+            cache.put(newInfo(packageName, "1.0"));
+        }
+
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(4 * entrySize, cache.getStats().getSize());
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(2 * entrySize, cache.getStats().getSize());
+        assertNull(cache.get("a", ALL_FIELDS));
+        assertNotNull(cache.get("d", ALL_FIELDS));
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    private PlayPackageInfoCache newCache(RxMagnetoConfig.Builder builder) {
+        return new PlayPackageInfoCache(builder.build(), clock);
+    }
+
+    private void advance(long duration, TimeUnit unit) {
+        nowNanos += unit.toNanos(duration);
+    }
+
+    private int sizeOf(PlayPackageInfo playPackageInfo) {
+        PlayPackageInfoCache cache = newCache(new RxMagnetoConfig.Builder());
+        cache.put(playPackageInfo);
+        return cache.getStats().getSize();
+    }
+
+    private static PlayPackageInfo newInfo(String packageName, String version) {
+        return new PlayPackageInfo.Builder(packageName, "url")
+                .setPackageVersion(version)
+                .setDownloads("1,000 - 5,000")
+                .setAppRating("4.5")
+                .setChangelogArray(Arrays.asList("Bug fixes", "Faster startup"))
+                .build();
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
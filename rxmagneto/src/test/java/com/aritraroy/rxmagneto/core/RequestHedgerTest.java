@@ -0,0 +1,310 @@
+package com.aritraroy.rxmagneto.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.aritraroy.rxmagneto.network.HedgingPolicy;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Single;
+import io.reactivex.SingleTransformer;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+
+public class RequestHedgerTest {
+
+    private static final long DELAY_MILLIS = 1000;
+
+    private final TestScheduler scheduler = new TestScheduler();
+    private final FakeTransport transport = new FakeTransport();
+    private final SingleTransformer<String, String> noLimiter = upstream -> upstream;
+
+    @Test
+    public void primaryWinsWhenItsHeadersArriveBeforeTheDelay() {
+        RequestHedger requestHedger = newRequestHedger(newHedgingPolicy().build());
+        transport.enqueue(respond(100, 200, 100));
+
+        TestObserver<String> observer = requestHedger.hedge(transport, noLimiter).test();
+        advance(200);
+        observer.assertValue("response 0");
+
+        advance(DELAY_MILLIS);
+        assertEquals(1, transport.attempts);
+    }
+
+    @Test
+    public void hedgeWinsWhenTheHeadersOfThePrimaryAreLate() {
+        RequestHedger requestHedger = newRequestHedger(newHedgingPolicy().build());
+        transport.enqueue(respond(5000, 200, 0));
+        transport.enqueue(respond(100, 200, 100));
+
+        TestObserver<String> observer = requestHedger.hedge(transport, noLimiter).test();
+        advance(DELAY_MILLIS - 1);
+        assertEquals(1, transport.attempts);
+        advance(1);
+        assertEquals(2, transport.attempts);
+
+        advance(200);
+        observer.assertValue("response 1");
+        assertTrue(transport.disposedAttempts.contains(0));
+    }
+
+    @Test
+    public void slowBodyAfterTheHeadersIsNotHedged() {
+        RequestHedger requestHedger = newRequestHedger(newHedgingPolicy().build());
+        transport.enqueue(respond(100, 200, 5000));
+
+        TestObserver<String> observer = requestHedger.hedge(transport, noLimiter).test();
+        advance(DELAY_MILLIS);
+        assertEquals(1, transport.attempts);
+        observer.assertNotTerminated();
+
+        advance(5000);
+        observer.assertValue("response 0");
+        assertEquals(1, transport.attempts);
+    }
+
+    @Test
+    public void unsuccessfulResponseBeforeTheDelayFailsWithoutHedge() {
+        RequestHedger requestHedger = newRequestHedger(newHedgingPolicy().build());
+        IOException error = new IOException("Connection reset");
+        transport.enqueue(fail(100, error));
+
+        TestObserver<String> observer = requestHedger.hedge(transport, noLimiter).test();
+        advance(100);
+        observer.assertError(error);
+
+        advance(DELAY_MILLIS);
+        assertEquals(1, transport.attempts);
+    }
+
+    @Test
+    public void primaryWinsWhenTheHedgeFails() {
+        RequestHedger requestHedger = newRequestHedger(newHedgingPolicy().build());
+        transport.enqueue(respond(1500, 200, 0));
+        transport.enqueue(fail(100, new IOException("Connection reset")));
+
+        TestObserver<String> observer = requestHedger.hedge(transport, noLimiter).test();
+        advance(1100);
+        assertEquals(2, transport.attempts);
+        observer.assertNotTerminated();
+
+        advance(400);
+        observer.assertValue("response 0");
+    }
+
+    @Test
+    public void hedgeWinsWhenThePrimaryFailsAfterTheHedgeStarted() {
+        RequestHedger requestHedger = newRequestHedger(newHedgingPolicy().build());
+        transport.enqueue(fail(1200, new IOException("Connection reset")));
+        transport.enqueue(respond(500, 200, 0));
+
+        TestObserver<String> observer = requestHedger.hedge(transport, noLimiter).test();
+        advance(1200);
+        observer.assertNotTerminated();
+
+        advance(300);
+        observer.assertValue("response 1");
+    }
+
+    @Test
+    public void bothFailingReportsTheErrorOfThePrimary() {
+        RequestHedger requestHedger = newRequestHedger(newHedgingPolicy().build());
+        IOException primaryError = new IOException("Primary");
+        transport.enqueue(fail(1200, primaryError));
+        transport.enqueue(fail(300, new IOException("Hedge")));
+        IOException lastPrimaryError = new IOException("Last primary");
+        transport.enqueue(fail(2000, lastPrimaryError));
+        transport.enqueue(fail(100, new IOException("First hedge")));
+
+        TestObserver<String> observer = requestHedger.hedge(transport, noLimiter).test();
+        advance(1200);
+        observer.assertNotTerminated();
+        advance(100);
+        observer.assertError(primaryError);
+
+        observer = requestHedger.hedge(transport, noLimiter).test();
+        advance(1100);
+        observer.assertNotTerminated();
+        advance(900);
+        observer.assertError(lastPrimaryError);
+        assertEquals(4, transport.attempts);
+    }
+
+    @Test
+    public void exhaustedBudgetSkipsTheHedge() {
+        RequestHedger requestHedger = newRequestHedger(newHedgingPolicy()
+                .setBudget(0.1, 1)
+                .build());
+        transport.enqueue(respond(5000, 200, 0));
+        transport.enqueue(respond(100, 200, 0));
+        transport.enqueue(respond(5000, 200, 0));
+
+        TestObserver<String> observer = requestHedger.hedge(transport, noLimiter).test();
+        advance(1100);
+        observer.assertValue("response 1");
+
+        observer = requestHedger.hedge(transport, noLimiter).test();
+        advance(DELAY_MILLIS);
+        assertEquals(3, transport.attempts);
+        advance(4000);
+        observer.assertValue("response 2");
+        assertEquals(3, transport.attempts);
+    }
+
+    @Test
+    public void hedgeWaitsForTheLimiter() {
+        RequestHedger requestHedger = newRequestHedger(newHedgingPolicy().build());
+        transport.enqueue(respond(5000, 200, 0));
+        transport.enqueue(respond(100, 200, 0));
+
+        TestObserver<String> observer = requestHedger.hedge(transport,
+                upstream -> upstream.delaySubscription(300, TimeUnit.MILLISECONDS, scheduler))
+                .test();
+        advance(DELAY_MILLIS + 299);
+        assertEquals(1, transport.attempts);
+        advance(1);
+        assertEquals(2, transport.attempts);
+
+        advance(100);
+        observer.assertValue("response 1");
+    }
+
+    @Test
+    public void hedgeRejectedByTheLimiterLeavesThePrimaryRunning() {
+        RequestHedger requestHedger = newRequestHedger(newHedgingPolicy().build());
+        transport.enqueue(respond(3000, 200, 0));
+
+        TestObserver<String> observer = requestHedger.hedge(transport,
+                upstream -> Single.<String>error(new IOException("Rate limit exceeded")))
+                .test();
+        advance(DELAY_MILLIS);
+        observer.assertNotTerminated();
+
+        advance(2000);
+        observer.assertValue("response 0");
+        assertEquals(1, transport.attempts);
+    }
+
+    @Test
+    public void recordsTheTimeToFirstByteOfRecordedSuccessesOnly() {
+        RequestHedger requestHedger = newRequestHedger(newHedgingPolicy().build());
+        transport.enqueue(respond(200, 200, 500));
+        transport.enqueue(respond(100, 304, 0));
+        transport.enqueue(respond(100, 500, 0));
+        transport.enqueue(fail(100, new IOException("Connection reset")));
+
+        for (int i = 0; i < 4; i++) {
+            requestHedger.hedge(transport, noLimiter).test();
+            advance(700);
+        }
+
+        assertEquals(1, requestHedger.getTimeToFirstByteHistogram().getCount());
+        long timeToFirstByteMillis = TimeUnit.NANOSECONDS.toMillis(
+                requestHedger.getTimeToFirstByteHistogram().getPercentileNanos(50));
+        assertTrue(timeToFirstByteMillis >= 190 && timeToFirstByteMillis <= 210);
+    }
+
+    @Test
+    public void hedgesAfterThePercentileOfTheTimeToFirstByte() {
+        RequestHedger requestHedger = newRequestHedger(newHedgingPolicy()
+                .setDelayPercentile(50)
+                .build());
+        for (int i = 0; i < 20; i++) {
+            transport.enqueue(respond(200, 200, 0));
+            requestHedger.hedge(transport, noLimiter).test();
+            advance(200);
+        }
+        transport.enqueue(respond(5000, 200, 0));
+        transport.enqueue(respond(100, 200, 0));
+
+        TestObserver<String> observer = requestHedger.hedge(transport, noLimiter).test();
+        advance(150);
+        assertEquals(21, transport.attempts);
+        advance(150);
+        assertEquals(22, transport.attempts);
+
+        advance(100);
+        observer.assertValue("response 21");
+    }
+
+    private RequestHedger newRequestHedger(HedgingPolicy hedgingPolicy) {
+        return new RequestHedger(hedgingPolicy, scheduler, scheduler);
+    }
+
+    private static HedgingPolicy.Builder newHedgingPolicy() {
+        return new HedgingPolicy.Builder()
+                .setDelay(DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void advance(long millis) {
+        scheduler.advanceTimeBy(millis, TimeUnit.MILLISECONDS);
+    }
+
+    private static Response respond(long headersMillis, int statusCode, long bodyMillis) {
+        return new Response(headersMillis, statusCode, bodyMillis, null);
+    }
+
+    private static Response fail(long afterMillis, Exception error) {
+        return new Response(afterMillis, 0, 0, error);
+    }
+
+    private static class Response {
+        final long headersMillis;
+        final int statusCode;
+        final long bodyMillis;
+        final Exception error;
+
+        Response(long headersMillis, int statusCode, long bodyMillis, Exception error) {
+            this.headersMillis = headersMillis;
+            this.statusCode = statusCode;
+            this.bodyMillis = bodyMillis;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Answers every attempt with the next scripted response, timed on the test scheduler. A
+     * complete 200 response asks for its time to first byte to be recorded, a 304 does not and
+     * any other status fails once its headers have arrived.
+     */
+    private class FakeTransport implements RequestHedger.Attempt<String> {
+        final List<Response> responses = new ArrayList<>();
+        final List<Integer> disposedAttempts = new ArrayList<>();
+        int attempts;
+
+        void enqueue(Response... responses) {
+            this.responses.addAll(Arrays.asList(responses));
+        }
+
+        @Override
+        public Single<String> create(final RequestHedger.ResponseListener responseListener) {
+            return Single.defer(() -> {
+                final int attempt = attempts++;
+                final Response response = responses.get(attempt);
+                return Single.timer(response.headersMillis, TimeUnit.MILLISECONDS, scheduler)
+                        .flatMap(tick -> {
+                            if (response.error != null) {
+                                return Single.<String>error(response.error);
+                            }
+                            responseListener.onResponse(response.statusCode == 200);
+                            if (response.statusCode != 200 && response.statusCode != 304) {
+                                return Single.<String>error(
+                                        new IOException("HTTP " + response.statusCode));
+                            }
+                            return Single.timer(response.bodyMillis, TimeUnit.MILLISECONDS,
+                                    scheduler)
+                                    .map(done -> "response " + attempt);
+                        })
+                        .doOnDispose(() -> disposedAttempts.add(attempt));
+            });
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.aritraroy.rxmagneto.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+public class PlayPackageInfoTest {
+
+    private static final String PACKAGE_NAME = "com.example.app";
+    private static final String PACKAGE_URL = "https://play.google.com/store/apps/details?id="
+            + PACKAGE_NAME;
+
+    @Test
+    public void parsesTheTypedValuesWhenBuilt() {
+        PlayPackageInfo playPackageInfo = newFullInfo();
+        assertEquals(1000000, playPackageInfo.getMinDownloads());
+        assertEquals(5000000, playPackageInfo.getMaxDownloads());
+        assertEquals(1489449600000L, playPackageInfo.getPublishedDateMillis());
+        assertEquals(4.5f, playPackageInfo.getAppRatingValue(), 0);
+        assertEquals(12345, playPackageInfo.getAppRatingCountValue());
+    }
+
+    @Test
+    public void carriesTheParsedValuesIntoAProjection() {
+        PlayPackageInfo projection = newFullInfo().project(
+                EnumSet.of(PlayField.DOWNLOADS, PlayField.APP_RATING));
+        assertEquals(EnumSet.of(PlayField.DOWNLOADS, PlayField.APP_RATING),
+                projection.getFields());
+        assertEquals(1000000, projection.getMinDownloads());
+        assertEquals(5000000, projection.getMaxDownloads());
+        assertEquals(4.5f, projection.getAppRatingValue(), 0);
+        assertNull(projection.getPublishedDate());
+        assertEquals(PlayPackageInfo.UNKNOWN, projection.getPublishedDateMillis());
+        assertEquals(PlayPackageInfo.UNKNOWN, projection.getAppRatingCountValue());
+    }
+
+    @Test
+    public void carriesTheParsedValuesOfBothIntoAMerge() {
+        PlayPackageInfo downloads = newFullInfo().project(EnumSet.of(PlayField.DOWNLOADS));
+        PlayPackageInfo rating = new PlayPackageInfo.Builder(PACKAGE_NAME, PACKAGE_URL)
+                .setAppRating("3,9")
+                .setAppRatingCount("1 000")
+                .setFields(EnumSet.of(PlayField.APP_RATING, PlayField.APP_RATING_COUNT))
+                .build();
+
+        PlayPackageInfo merged = downloads.merge(rating);
+        assertEquals(EnumSet.of(PlayField.DOWNLOADS, PlayField.APP_RATING,
+                PlayField.APP_RATING_COUNT), merged.getFields());
+        assertEquals(1000000, merged.getMinDownloads());
+        assertEquals(3.9f, merged.getAppRatingValue(), 0);
+        assertEquals(1000, merged.getAppRatingCountValue());
+        assertTrue(Float.isNaN(downloads.getAppRatingValue()));
+    }
+
+    @Test
+    public void letsTheOtherContainerWinAMerge() {
+        PlayPackageInfo newer = new PlayPackageInfo.Builder(PACKAGE_NAME, PACKAGE_URL)
+                .setDownloads("5,000,000+")
+                .setFields(EnumSet.of(PlayField.DOWNLOADS))
+                .build();
+        PlayPackageInfo merged = newFullInfo().merge(newer);
+        assertEquals("5,000,000+", merged.getDownloads());
+        assertEquals(5000000, merged.getMinDownloads());
+        assertEquals(PlayPackageInfo.UNKNOWN, merged.getMaxDownloads());
+        assertEquals(12345, merged.getAppRatingCountValue());
+    }
+
+    private static PlayPackageInfo newFullInfo() {
+        return new PlayPackageInfo.Builder(PACKAGE_NAME, PACKAGE_URL)
+                .setIsUrlValid(true)
+                .setPackageVersion("1.2.3")
+                .setDownloads("1,000,000 - 5,000,000")
+                .setPublishedDate("March 14, 2017")
+                .setOsRequirements("4.0 and up")
+                .setContentRating("Everyone")
+                .setAppRating("4.5")
+                .setAppRatingCount("12,345")
+                .setChangelogArray(Arrays.asList("Bug fixes"))
+                .build();
+    }
+}
@@ -0,0 +1,306 @@
+package com.aritraroy.rxmagneto.extractor;
+
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_APP_RATING;
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_APP_RATING_COUNT;
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_CONTENT_RATING;
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_DOWNLOADS;
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_LAST_PUBLISHED_DATE;
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_OS_REQUIREMENTS;
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_RECENT_CHANGE;
+import static com.aritraroy.rxmagneto.core.RxMagnetoTags.TAG_PLAY_STORE_VERSION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.aritraroy.rxmagneto.domain.PlayField;
+import com.aritraroy.rxmagneto.domain.PlayPackageInfo;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the streaming extractor against the Jsoup DOM queries it replaced, over the recorded
+ * Play Store pages and over snippets of markup a streaming scanner can easily get wrong
+ */
+public class PlayPageExtractorTest {
+
+    private static final String[] FIXTURES = {"details-typical.html",
+            "details-long-changelog.html"};
+    private static final Map<PlayField, String[]> JSOUP_SELECTORS = new EnumMap<>(PlayField.class);
+
+    static {
+        JSOUP_SELECTORS.put(PlayField.VERSION, itemPropSelectors(TAG_PLAY_STORE_VERSION));
+        JSOUP_SELECTORS.put(PlayField.DOWNLOADS, itemPropSelectors(TAG_PLAY_STORE_DOWNLOADS));
+        JSOUP_SELECTORS.put(PlayField.PUBLISHED_DATE,
+                itemPropSelectors(TAG_PLAY_STORE_LAST_PUBLISHED_DATE));
+        JSOUP_SELECTORS.put(PlayField.OS_REQUIREMENTS,
+                itemPropSelectors(TAG_PLAY_STORE_OS_REQUIREMENTS));
+        JSOUP_SELECTORS.put(PlayField.CONTENT_RATING,
+                itemPropSelectors(TAG_PLAY_STORE_CONTENT_RATING));
+        JSOUP_SELECTORS.put(PlayField.APP_RATING, new String[]{
+                "div[class=" + TAG_PLAY_STORE_APP_RATING + "]",
+                "div." + TAG_PLAY_STORE_APP_RATING});
+        JSOUP_SELECTORS.put(PlayField.APP_RATING_COUNT, new String[]{
+                "span[class=" + TAG_PLAY_STORE_APP_RATING_COUNT + "]",
+                "." + TAG_PLAY_STORE_APP_RATING_COUNT});
+        JSOUP_SELECTORS.put(PlayField.CHANGELOG, new String[]{
+                "." + TAG_PLAY_STORE_RECENT_CHANGE});
+    }
+
+    @Test
+    public void extractsRecordedPagesLikeJsoup() throws Exception {
+        for (String fixture : FIXTURES) {
+            String html = readFixture(fixture);
+            PlayPackageInfo playPackageInfo = extract(html, EnumSet.allOf(PlayField.class));
+            Document document = Jsoup.parse(html);
+            for (PlayField field : PlayField.values()) {
+                assertEquals(fixture + " " + field, selectWithJsoup(document, field),
+                        playPackageInfo.getValue(field));
+            }
+        }
+    }
+
+    @Test
+    public void extractsEveryFieldOnItsOwnLikeAllTogether() throws Exception {
+        String html = readFixture(FIXTURES[0]);
+        PlayPackageInfo all = extract(html, EnumSet.allOf(PlayField.class));
+        for (PlayField field : PlayField.values()) {
+            PlayPackageInfo single = extract(html, EnumSet.of(field));
+            assertEquals(field.toString(), all.getValue(field), single.getValue(field));
+            assertEquals(EnumSet.of(field), single.getFields());
+        }
+    }
+
+    @Test
+    public void reusesTheExtractorAcrossPages() throws Exception {
+        PlayPageExtractor extractor = new PlayPageExtractor(EnumSet.allOf(PlayField.class));
+        for (String fixture : FIXTURES) {
+            String html = readFixture(fixture);
+            PlayPackageInfo.Builder builder = newBuilder();
+            extractor.extract(new StringReader(html), builder);
+            assertEquals(extract(html, EnumSet.allOf(PlayField.class)).getChangelogArray(),
+                    builder.build().getChangelogArray());
+        }
+    }
+
+    @Test
+    public void decodesNamedAndNumericEntities() throws Exception {
+        assertChangelog("<div class=\"recent-change\">It&rsquo;s faster&hellip; &mdash; "
+                        + "caf&eacute; &amp; &AMP; &lt;b&gt; &quot;new&quot; &apos;s "
+                        + "&#8226; &#x2022;</div>",
+                "It’s faster… — café & & <b> \"new\" 's • •");
+    }
+
+    @Test
+    public void keepsUnknownAndMalformedEntitiesAsText() throws Exception {
+        assertChangelog("<div class=\"recent-change\">&bogus; &Rsquo; &#xZZ; a & b</div>",
+                "&bogus; &Rsquo; &#xZZ; a & b");
+    }
+
+    @Test
+    public void closesParagraphsImpliedByTheNextBlock() throws Exception {
+        assertChangelogLikeJsoup("<div><p class=\"recent-change\">one"
+                + "<p class=\"recent-change\">two<div class=\"recent-change\">three</div>"
+                + "</div>");
+    }
+
+    @Test
+    public void closesListItemsImpliedByTheNextItem() throws Exception {
+        assertChangelogLikeJsoup("<ul><li class=\"recent-change\">one"
+                + "<li class=\"recent-change\">two<ul><li>nested</ul> tail"
+                + "<li class=\"recent-change\">three</ul>");
+        assertChangelogLikeJsoup("<dl><dt class=\"recent-change\">term"
+                + "<dd class=\"recent-change\">definition<dt class=\"recent-change\">next</dl>");
+    }
+
+    @Test
+    public void treatsSelfClosedElementsAsEmpty() throws Exception {
+        assertChangelogLikeJsoup("<div class=\"recent-change\">one<div/> two<span/></div>"
+                + "<div class=\"recent-change\"/><div class=\"recent-change\">three</div>");
+        assertEquals("1.0", extract("<div itemprop=\"softwareVersion\">1.0<br/>"
+                + "</div><div itemprop=\"softwareVersion\">2.0</div>", EnumSet.of(
+                PlayField.VERSION)).getPackageVersion());
+    }
+
+    @Test
+    public void ignoresElementsNestedBeyondTheMaximumDepth() throws Exception {
+        StringBuilder html = new StringBuilder("<div itemprop=\"softwareVersion\">1.0");
+        for (int i = 0; i < 600; i++) {
+            html.append("<div>");
+        }
+        for (int i = 0; i < 600; i++) {
+            html.append("</div>");
+        }
+        html.append(" beta</div><div class=\"recent-change\">after</div>");
+
+        PlayPackageInfo playPackageInfo = extract(html.toString(),
+                EnumSet.of(PlayField.VERSION, PlayField.CHANGELOG));
+        assertEquals("1.0 beta", playPackageInfo.getPackageVersion());
+        assertEquals(Collections.singletonList("after"), playPackageInfo.getChangelogArray());
+    }
+
+    @Test
+    public void collectsChangelogEntriesFromTheWholePage() throws Exception {
+        assertChangelogLikeJsoup("<div><div class=\"recent-change\">one</div></div>"
+                + "<p>unrelated</p><section><span class=\"recent-change\">two</span>"
+                + "</section><div class=\"details recent-change\">three</div>");
+    }
+
+    @Test
+    public void skipsScriptsStylesAndComments() throws Exception {
+        assertChangelogLikeJsoup("<script>var s = '<div class=\"recent-change\">x</div>';"
+                + "</script><style>.recent-change{}</style>"
+                + "<!-- <div class=\"recent-change\">y</div> -->"
+                + "<div class=\"recent-change\">z<!-- hidden --> <script>w</script></div>");
+    }
+
+    @Test
+    public void collectsOnlyTheOwnTextOfAnElement() throws Exception {
+        assertChangelogLikeJsoup("<div class=\"recent-change\">  one <b>bold</b> two<br>"
+                + "three\n\t four  </div>");
+    }
+
+    @Test
+    public void prefersTheFirstSelectorOverFallbacks() throws Exception {
+        String html = "<span itemprop=\"softwareVersion\">fallback</span>"
+                + "<div itemprop=\"softwareVersion\">preferred</div>";
+        assertEquals("preferred", extract(html, EnumSet.of(PlayField.VERSION))
+                .getPackageVersion());
+        assertEquals("fallback", extract("<span itemprop=\"softwareVersion\">fallback</span>",
+                EnumSet.of(PlayField.VERSION)).getPackageVersion());
+    }
+
+    @Test
+    public void stopsReadingOnceEveryFieldIsFound() throws Exception {
+        CountingReader reader = new CountingReader("<div itemprop=\"softwareVersion\">1.0</div>"
+                + "<div>" + repeat("x", 100000) + "</div>");
+        PlayPackageInfo.Builder builder = newBuilder();
+        new PlayPageExtractor(EnumSet.of(PlayField.VERSION)).extract(reader, builder);
+        assertEquals("1.0", builder.build().getPackageVersion());
+        assertTrue(reader.count < 100000);
+    }
+
+    @Test
+    public void stopsWhenTheChangelogListenerAsksTo() throws Exception {
+        final List<String> entries = new ArrayList<>();
+        PlayPackageInfo.Builder builder = newBuilder();
+        new PlayPageExtractor(EnumSet.of(PlayField.CHANGELOG)).extract(new StringReader(
+                "<div class=\"recent-change\">one</div><div class=\"recent-change\">two</div>"
+                        + "<div class=\"recent-change\">three</div>"), builder, entry -> {
+            entries.add(entry);
+            return entries.size() < 2;
+        });
+        assertEquals(Arrays.asList("one", "two"), entries);
+        assertNull(builder.build().getChangelogArray());
+    }
+
+    @Test
+    public void reportsMissingFieldsAsEmpty() throws Exception {
+        PlayPackageInfo playPackageInfo = extract("<html><body>nothing</body></html>",
+                EnumSet.allOf(PlayField.class));
+        assertNull(playPackageInfo.getPackageVersion());
+        assertTrue(playPackageInfo.getChangelogArray().isEmpty());
+        assertFalse(playPackageInfo.getFields().isEmpty());
+    }
+
+    private static void assertChangelog(String html, String... expected) throws IOException {
+        assertEquals(Arrays.asList(expected),
+                extract(html, EnumSet.of(PlayField.CHANGELOG)).getChangelogArray());
+    }
+
+    private static void assertChangelogLikeJsoup(String html) throws IOException {
+        assertEquals(selectWithJsoup(Jsoup.parse(html), PlayField.CHANGELOG),
+                extract(html, EnumSet.of(PlayField.CHANGELOG)).getChangelogArray());
+    }
+
+    private static PlayPackageInfo extract(String html, EnumSet<PlayField> fields)
+            throws IOException {
+        PlayPackageInfo.Builder builder = newBuilder();
+        new PlayPageExtractor(fields).extract(new StringReader(html), builder);
+        return builder.build();
+    }
+
+    private static PlayPackageInfo.Builder newBuilder() {
+        return new PlayPackageInfo.Builder("com.example", "https://example.com/com.example");
+    }
+
+    private static Object selectWithJsoup(Document document, PlayField field) {
+        String[] selectors = JSOUP_SELECTORS.get(field);
+        if (field == PlayField.CHANGELOG) {
+            List<String> changelogArray = new ArrayList<>();
+            for (Element element : document.select(selectors[0])) {
+                changelogArray.add(element.ownText());
+            }
+            return changelogArray;
+        }
+        for (String selector : selectors) {
+            Element element = document.select(selector).first();
+            if (element != null) {
+                return element.ownText();
+            }
+        }
+        return null;
+    }
+
+    private static String[] itemPropSelectors(String tag) {
+        return new String[]{"div[itemprop=" + tag + "]", "[itemprop=" + tag + "]"};
+    }
+
+    private static String readFixture(String name) throws IOException {
+        InputStream inputStream = PlayPageExtractorTest.class.getResourceAsStream(
+                "/fixtures/" + name);
+        Reader reader = new InputStreamReader(inputStream, "UTF-8");
+        try {
+            StringBuilder html = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                html.append(buffer, 0, read);
+            }
+            return html.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder(value.length() * count);
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    private static class CountingReader extends StringReader {
+        private int count;
+
+        CountingReader(String value) {
+            super(value);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
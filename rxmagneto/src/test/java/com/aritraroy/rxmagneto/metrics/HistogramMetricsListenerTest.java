@@ -0,0 +1,43 @@
+package com.aritraroy.rxmagneto.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class HistogramMetricsListenerTest {
+
+    private final HistogramMetricsListener listener = new HistogramMetricsListener();
+
+    @Test
+    public void recordsNetworkRequestsPerOperation() {
+        listener.onRequestFinished(newRequestMetrics(Operation.FETCH).build());
+        listener.onRequestFinished(newRequestMetrics(Operation.FETCH)
+                .setError(new IOException())
+                .build());
+        listener.onRequestFinished(newRequestMetrics(Operation.REVALIDATE)
+                .setOutcome(Outcome.NOT_MODIFIED)
+                .build());
+
+        assertEquals(2, listener.getHistogram(Operation.FETCH).getCount());
+        assertEquals(1, listener.getHistogram(Operation.REVALIDATE).getCount());
+        assertEquals(0, listener.getHistogram(Operation.VERIFY).getCount());
+    }
+
+    @Test
+    public void leavesOutCacheHitsAndCanceledRequests() {
+        listener.onRequestFinished(newRequestMetrics(Operation.FETCH)
+                .setCacheHit(true)
+                .build());
+        listener.onRequestFinished(newRequestMetrics(Operation.FETCH)
+                .setOutcome(Outcome.CANCELED)
+                .build());
+
+        assertEquals(0, listener.getHistogram(Operation.FETCH).getCount());
+    }
+
+    private static RequestMetrics.Builder newRequestMetrics(Operation operation) {
+        return new RequestMetrics.Builder(operation, "com.example.app");
+    }
+}
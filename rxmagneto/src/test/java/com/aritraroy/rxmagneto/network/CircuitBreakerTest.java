@@ -0,0 +1,147 @@
+package com.aritraroy.rxmagneto.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CircuitBreakerTest {
+
+    private final ManualNanoClock clock = new ManualNanoClock();
+
+    @Test
+    public void opensAfterTheThresholdOfConsecutiveFailures() {
+        CircuitBreaker circuitBreaker = newCircuitBreaker(3);
+        for (int i = 0; i < 2; i++) {
+            assertTrue(circuitBreaker.tryAcquire());
+            circuitBreaker.onFailure();
+        }
+        assertFalse(circuitBreaker.isOpen());
+
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        assertTrue(circuitBreaker.isOpen());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void resetsTheFailureCountOnSuccess() {
+        CircuitBreaker circuitBreaker = newCircuitBreaker(2);
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        assertFalse(circuitBreaker.isOpen());
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void neverOpensWithoutThreshold() {
+        CircuitBreaker circuitBreaker = newCircuitBreaker(0);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(circuitBreaker.tryAcquire());
+            circuitBreaker.onFailure();
+        }
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void letsASingleTrialThroughAfterTheOpenDuration() {
+        CircuitBreaker circuitBreaker = openCircuitBreaker();
+        clock.advance(9, TimeUnit.SECONDS);
+        assertFalse(circuitBreaker.tryAcquire());
+
+        clock.advance(1, TimeUnit.SECONDS);
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void closesWhenTheTrialSucceeds() {
+        CircuitBreaker circuitBreaker = openCircuitBreaker();
+        clock.advance(10, TimeUnit.SECONDS);
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onSuccess();
+
+        assertFalse(circuitBreaker.isOpen());
+        assertTrue(circuitBreaker.tryAcquire());
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void staysOpenForAnotherPeriodWhenTheTrialFails() {
+        CircuitBreaker circuitBreaker = openCircuitBreaker();
+        clock.advance(10, TimeUnit.SECONDS);
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+
+        assertTrue(circuitBreaker.isOpen());
+        clock.advance(9, TimeUnit.SECONDS);
+        assertFalse(circuitBreaker.tryAcquire());
+        clock.advance(1, TimeUnit.SECONDS);
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void letsTheNextTrialThroughWhenTheTrialIsCanceled() {
+        CircuitBreaker circuitBreaker = openCircuitBreaker();
+        clock.advance(10, TimeUnit.SECONDS);
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onCancel();
+
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void ignoresCancelsWhileClosed() {
+        CircuitBreaker circuitBreaker = newCircuitBreaker(1);
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onCancel();
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void letsOnlyOneOfManyConcurrentCallersTryTheHost() throws InterruptedException {
+        final CircuitBreaker circuitBreaker = openCircuitBreaker();
+        clock.advance(10, TimeUnit.SECONDS);
+
+        final int threadCount = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        final AtomicInteger acquired = new AtomicInteger();
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    if (circuitBreaker.tryAcquire()) {
+                        acquired.incrementAndGet();
+                    }
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, acquired.get());
+    }
+
+    private CircuitBreaker openCircuitBreaker() {
+        CircuitBreaker circuitBreaker = newCircuitBreaker(1);
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        assertTrue(circuitBreaker.isOpen());
+        return circuitBreaker;
+    }
+
+    private CircuitBreaker newCircuitBreaker(int failureThreshold) {
+        return new CircuitBreaker(failureThreshold, 10, TimeUnit.SECONDS, clock);
+    }
+}
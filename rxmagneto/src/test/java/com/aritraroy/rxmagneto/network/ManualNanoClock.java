@@ -0,0 +1,20 @@
+package com.aritraroy.rxmagneto.network;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link NanoClock} that only moves when a test advances it
+ */
+class ManualNanoClock implements NanoClock {
+
+    private volatile long nanoTime = 1000000000L;
+
+    @Override
+    public long nanoTime() {
+        return nanoTime;
+    }
+
+    void advance(long duration, TimeUnit unit) {
+        nanoTime += unit.toNanos(duration);
+    }
+}
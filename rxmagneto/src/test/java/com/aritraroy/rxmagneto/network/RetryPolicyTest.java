@@ -0,0 +1,115 @@
+package com.aritraroy.rxmagneto.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.aritraroy.rxmagneto.exceptions.HttpStatusException;
+import com.aritraroy.rxmagneto.exceptions.RxMagnetoException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class RetryPolicyTest {
+
+    private static final double MAX_JITTER = 0.999999;
+
+    @Test
+    public void retriesOnlyTransientFailures() {
+        RetryPolicy retryPolicy = new RetryPolicy.Builder().build();
+        assertTrue(retryPolicy.isRetryable(new IOException()));
+        assertTrue(retryPolicy.isRetryable(new SocketTimeoutException()));
+        assertTrue(retryPolicy.isRetryable(newHttpStatusException(429, -1)));
+        assertTrue(retryPolicy.isRetryable(newHttpStatusException(500, -1)));
+        assertTrue(retryPolicy.isRetryable(newHttpStatusException(503, -1)));
+
+        assertFalse(retryPolicy.isRetryable(new MalformedURLException()));
+        assertFalse(retryPolicy.isRetryable(newHttpStatusException(404, -1)));
+        assertFalse(retryPolicy.isRetryable(new RxMagnetoException(1, "Not found")));
+        assertFalse(retryPolicy.isRetryable(new IllegalStateException()));
+    }
+
+    @Test
+    public void growsTheBackoffExponentiallyUpToTheCap() {
+        RetryPolicy retryPolicy = newRetryPolicy(10, MAX_JITTER);
+        assertEquals(499, retryPolicy.getRetryDelayMillis(1, new IOException()));
+        assertEquals(999, retryPolicy.getRetryDelayMillis(2, new IOException()));
+        assertEquals(1999, retryPolicy.getRetryDelayMillis(3, new IOException()));
+        assertEquals(3999, retryPolicy.getRetryDelayMillis(4, new IOException()));
+        assertEquals(4999, retryPolicy.getRetryDelayMillis(5, new IOException()));
+        assertEquals(4999, retryPolicy.getRetryDelayMillis(10, new IOException()));
+    }
+
+    @Test
+    public void jittersTheDelayBetweenZeroAndTheBackoff() {
+        assertEquals(0, newRetryPolicy(3, 0).getRetryDelayMillis(3, new IOException()));
+        assertEquals(1000, newRetryPolicy(3, 0.5).getRetryDelayMillis(3, new IOException()));
+
+        RetryPolicy retryPolicy = new RetryPolicy.Builder().setRandom(new Random(42)).build();
+        for (int i = 0; i < 1000; i++) {
+            long delayMillis = retryPolicy.getRetryDelayMillis(1 + i % 3, new IOException());
+            assertTrue(delayMillis >= 0 && delayMillis < 500L << (i % 3));
+        }
+    }
+
+    @Test
+    public void stopsAfterTheMaximumNoOfRetries() {
+        RetryPolicy retryPolicy = newRetryPolicy(2, MAX_JITTER);
+        assertTrue(retryPolicy.getRetryDelayMillis(2, new IOException()) >= 0);
+        assertEquals(-1, retryPolicy.getRetryDelayMillis(3, new IOException()));
+        assertEquals(-1, RetryPolicy.NONE.getRetryDelayMillis(1, new IOException()));
+        assertEquals(-1, retryPolicy.getRetryDelayMillis(1, newHttpStatusException(404, -1)));
+    }
+
+    @Test
+    public void waitsAtLeastForRetryAfter() {
+        RetryPolicy retryPolicy = newRetryPolicy(3, 0);
+        assertEquals(3000, retryPolicy.getRetryDelayMillis(1, newHttpStatusException(429,
+                3000)));
+        assertEquals(5000, retryPolicy.getRetryDelayMillis(1, newHttpStatusException(503,
+                5000)));
+        assertEquals(1999, newRetryPolicy(3, MAX_JITTER).getRetryDelayMillis(3,
+                newHttpStatusException(503, 1000)));
+    }
+
+    @Test
+    public void givesUpWhenRetryAfterExceedsTheMaximumBackoff() {
+        RetryPolicy retryPolicy = newRetryPolicy(3, 0);
+        assertEquals(-1, retryPolicy.getRetryDelayMillis(1, newHttpStatusException(429,
+                5001)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeMaxRetries() {
+        new RetryPolicy.Builder().setMaxRetries(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShrinkingBackoff() {
+        new RetryPolicy.Builder().setMultiplier(0.5);
+    }
+
+    private static RetryPolicy newRetryPolicy(int maxRetries, final double jitter) {
+        return new RetryPolicy.Builder()
+                .setMaxRetries(maxRetries)
+                .setInitialBackoff(500, TimeUnit.MILLISECONDS)
+                .setMaxBackoff(5, TimeUnit.SECONDS)
+                .setRandom(new Random() {
+                    @Override
+                    public double nextDouble() {
+                        return jitter;
+                    }
+                })
+                .build();
+    }
+
+    private static HttpStatusException newHttpStatusException(int statusCode,
+                                                              long retryAfterMillis) {
+        return new HttpStatusException(1, "Failed", statusCode, retryAfterMillis);
+    }
+}
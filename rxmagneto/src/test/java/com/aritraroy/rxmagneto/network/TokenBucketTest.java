@@ -0,0 +1,89 @@
+package com.aritraroy.rxmagneto.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TokenBucketTest {
+
+    private final ManualNanoClock clock = new ManualNanoClock();
+
+    @Test
+    public void allowsABurstThenRefillsAtTheSteadyRate() {
+        TokenBucket tokenBucket = new TokenBucket(10, 3, clock);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(tokenBucket.tryAcquire());
+        }
+        assertFalse(tokenBucket.tryAcquire());
+
+        clock.advance(99, TimeUnit.MILLISECONDS);
+        assertFalse(tokenBucket.tryAcquire());
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        assertTrue(tokenBucket.tryAcquire());
+        assertFalse(tokenBucket.tryAcquire());
+    }
+
+    @Test
+    public void neverHoldsMoreThanTheBurstSize() {
+        TokenBucket tokenBucket = new TokenBucket(10, 2, clock);
+        clock.advance(1, TimeUnit.HOURS);
+        assertTrue(tokenBucket.tryAcquire());
+        assertTrue(tokenBucket.tryAcquire());
+        assertFalse(tokenBucket.tryAcquire());
+    }
+
+    @Test
+    public void reservesFutureTokensInOrder() {
+        TokenBucket tokenBucket = new TokenBucket(10, 2, clock);
+        assertEquals(0, tokenBucket.reserve());
+        assertEquals(0, tokenBucket.reserve());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), tokenBucket.reserve());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), tokenBucket.reserve());
+        assertFalse(tokenBucket.tryAcquire());
+
+        clock.advance(150, TimeUnit.MILLISECONDS);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(150), tokenBucket.reserve());
+        clock.advance(1, TimeUnit.SECONDS);
+        assertTrue(tokenBucket.tryAcquire());
+    }
+
+    @Test
+    public void handsOutEveryTokenOnceUnderContention() throws InterruptedException {
+        final TokenBucket tokenBucket = new TokenBucket(1, 50, clock);
+        final int threadCount = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        final AtomicInteger acquired = new AtomicInteger();
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < 1000; j++) {
+                        if (tokenBucket.tryAcquire()) {
+                            acquired.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(50, acquired.get());
+        assertEquals(TimeUnit.SECONDS.toNanos(1), tokenBucket.reserve());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsANonPositiveRate() {
+        new TokenBucket(0, 1);
+    }
+}
@@ -0,0 +1,192 @@
+package com.aritraroy.rxmagneto.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks connection reuse and cancellation of the default transport against a local server
+ * answering every request with a body of the requested size
+ */
+public class UrlConnectionHttpTransportTest {
+
+    private ServerSocket serverSocket;
+    private Thread serverThread;
+    private final AtomicInteger acceptedConnections = new AtomicInteger();
+    private volatile boolean isStalling;
+
+    @Before
+    public void setUp() throws IOException {
+        serverSocket = new ServerSocket(0);
+        serverThread = new Thread(this::serve);
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        serverSocket.close();
+    }
+
+    @Test
+    public void leavesTheSystemPropertiesAlone() {
+        String keepAlive = System.getProperty("http.keepAlive");
+        String maxConnections = System.getProperty("http.maxConnections");
+        new UrlConnectionHttpTransport();
+        new UrlConnectionHttpTransport(2);
+        assertEquals(keepAlive, System.getProperty("http.keepAlive"));
+        assertEquals(maxConnections, System.getProperty("http.maxConnections"));
+    }
+
+    @Test
+    public void reusesTheConnectionOfAFullyReadBody() throws IOException {
+        HttpTransport transport = new UrlConnectionHttpTransport();
+        for (int i = 0; i < 3; i++) {
+            HttpResponse httpResponse = transport.execute(newRequest(1000).build());
+            readFully(httpResponse.getBody());
+            httpResponse.close();
+        }
+        assertEquals(1, acceptedConnections.get());
+    }
+
+    @Test
+    public void drainsASmallBodyReadOnlyPartially() throws IOException {
+        HttpTransport transport = new UrlConnectionHttpTransport();
+        for (int i = 0; i < 3; i++) {
+            HttpResponse httpResponse = transport.execute(newRequest(10000).build());
+            assertTrue(httpResponse.getBody().read() != -1);
+            httpResponse.close();
+        }
+        assertEquals(1, acceptedConnections.get());
+    }
+
+    @Test
+    public void dropsTheConnectionOfALargeBodyReadOnlyPartially() throws IOException {
+        HttpTransport transport = new UrlConnectionHttpTransport();
+        for (int i = 0; i < 2; i++) {
+            HttpResponse httpResponse = transport.execute(newRequest(1000000).build());
+            assertTrue(httpResponse.getBody().read() != -1);
+            httpResponse.close();
+            assertTrue(httpResponse.getBytesReceived() < 1000000);
+        }
+        assertEquals(2, acceptedConnections.get());
+    }
+
+    @Test
+    public void abortsAStalledRequestWhenCanceled() throws Exception {
+        isStalling = true;
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        HttpRequest request = newRequest(0)
+                .setReadTimeout(30000)
+                .setCancellationSignal(cancellationSignal)
+                .build();
+        new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ignored) {
+            }
+            cancellationSignal.cancel();
+        }).start();
+
+        long startMillis = System.currentTimeMillis();
+        try {
+            new UrlConnectionHttpTransport().execute(request);
+            fail("The canceled request has completed");
+        } catch (IOException expected) {
+            assertTrue(System.currentTimeMillis() - startMillis < 10000);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void releasesThePermitOfAFailedRequest() throws IOException {
+        HttpTransport transport = new UrlConnectionHttpTransport(1);
+        // A socket nobody accepts on, closing one with a pending accept may still let a
+        // connection in
+        ServerSocket closedSocket = new ServerSocket(0);
+        closedSocket.close();
+        for (int i = 0; i < 2; i++) {
+            try {
+                transport.execute(new HttpRequest.Builder("http://127.0.0.1:"
+                        + closedSocket.getLocalPort() + "/0")
+                        .setConnectTimeout(1000)
+                        .build());
+                fail("The request to a closed port has succeeded");
+            } catch (IOException expected) {
+                // A leaked permit would block the second request
+            }
+        }
+    }
+
+    private HttpRequest.Builder newRequest(int bodySize) {
+        return new HttpRequest.Builder("http://127.0.0.1:" + serverSocket.getLocalPort() + "/"
+                + bodySize)
+                .setHeader("Accept-Encoding", "identity");
+    }
+
+    private void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                acceptedConnections.incrementAndGet();
+                Thread connectionThread = new Thread(() -> serveConnection(socket));
+                connectionThread.setDaemon(true);
+                connectionThread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serveConnection(Socket socket) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), "US-ASCII"));
+            OutputStream outputStream = socket.getOutputStream();
+            String requestLine;
+            while ((requestLine = reader.readLine()) != null) {
+                String line;
+                while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                    // Skip the request headers
+                }
+                if (isStalling) {
+                    Thread.sleep(60000);
+                }
+                int bodySize = Integer.parseInt(requestLine.split(" ")[1].substring(1));
+                outputStream.write(("HTTP/1.1 200 OK\r\nContent-Length: " + bodySize
+                        + "\r\nConnection: keep-alive\r\n\r\n").getBytes("US-ASCII"));
+                byte[] chunk = new byte[8192];
+                for (int written = 0; written < bodySize; written += chunk.length) {
+                    outputStream.write(chunk, 0, Math.min(chunk.length, bodySize - written));
+                }
+                outputStream.flush();
+            }
+        } catch (IOException | InterruptedException ignored) {
+            // The client has gone away
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void readFully(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (inputStream.read(buffer) != -1) {
+            // Read the whole body
+        }
+    }
+}
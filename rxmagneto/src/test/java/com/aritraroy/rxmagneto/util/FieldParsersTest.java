@@ -0,0 +1,80 @@
+package com.aritraroy.rxmagneto.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class FieldParsersTest {
+
+    private static final long MARCH_14_2017 = 1489449600000L;
+
+    @Test
+    public void parsesBothBoundsOfADownloadsRange() {
+        String downloads = "1,000,000 - 5,000,000";
+        assertEquals(1000000, FieldParsers.parseMinDownloads(downloads));
+        assertEquals(5000000, FieldParsers.parseMaxDownloads(downloads));
+        assertEquals(1000, FieldParsers.parseMinDownloads("1.000–5.000"));
+        assertEquals(5000, FieldParsers.parseMaxDownloads("1.000–5.000"));
+    }
+
+    @Test
+    public void parsesAnOpenDownloadsRange() {
+        assertEquals(1000000, FieldParsers.parseMinDownloads("1,000,000+"));
+        assertEquals(FieldParsers.UNKNOWN, FieldParsers.parseMaxDownloads("1,000,000+"));
+    }
+
+    @Test
+    public void parsesCountsWithTheGroupingSeparatorsOfAnyLocale() {
+        assertEquals(1234567, FieldParsers.parseCount("1,234,567"));
+        assertEquals(1234567, FieldParsers.parseCount("1.234.567"));
+        assertEquals(1234567, FieldParsers.parseCount("1 234 567"));
+        assertEquals(1234567, FieldParsers.parseCount("1 234 567 total"));
+        assertEquals(1234567, FieldParsers.parseCount("1'234'567"));
+    }
+
+    @Test
+    public void parsesRatingsWithEitherDecimalSeparator() {
+        assertEquals(4.5f, FieldParsers.parseRating("4.5"), 0);
+        assertEquals(4.5f, FieldParsers.parseRating("4,5"), 0);
+        assertEquals(4f, FieldParsers.parseRating("4"), 0);
+        assertEquals(4.25f, FieldParsers.parseRating("Rated 4.25 stars out of 5"), 0);
+    }
+
+    @Test
+    public void parsesDatesWithTheMonthInAnyOrder() {
+        assertEquals(MARCH_14_2017, FieldParsers.parseDate("March 14, 2017"));
+        assertEquals(MARCH_14_2017, FieldParsers.parseDate("14 Mar 2017"));
+        assertEquals(MARCH_14_2017, FieldParsers.parseDate("14 mars 2017"));
+        assertEquals(MARCH_14_2017, FieldParsers.parseDate("2017-03-14"));
+        assertEquals(MARCH_14_2017, FieldParsers.parseDate("2017年3月14日"));
+        assertEquals(0, FieldParsers.parseDate("1970-01-01"));
+        assertEquals(951782400000L, FieldParsers.parseDate("Feb 29, 2000"));
+    }
+
+    @Test
+    public void doesNotUnderstandNonEnglishMonthNames() {
+        assertEquals(FieldParsers.UNKNOWN, FieldParsers.parseDate("14. März 2017"));
+        assertEquals(FieldParsers.UNKNOWN, FieldParsers.parseDate("14 juin 2017"));
+    }
+
+    @Test
+    public void returnsTheSentinelForUnparseableText() {
+        assertEquals(FieldParsers.UNKNOWN, FieldParsers.parseCount(null));
+        assertEquals(FieldParsers.UNKNOWN, FieldParsers.parseCount("Varies with device"));
+        assertEquals(FieldParsers.UNKNOWN, FieldParsers.parseMinDownloads(""));
+        assertEquals(FieldParsers.UNKNOWN, FieldParsers.parseDate("Unknown"));
+        assertTrue(Float.isNaN(FieldParsers.parseRating(null)));
+        assertTrue(Float.isNaN(FieldParsers.parseRating("Not rated")));
+    }
+
+    @Test
+    public void returnsTheSentinelOnOverflow() {
+        assertEquals(Long.MAX_VALUE, FieldParsers.parseCount("9223372036854775807"));
+        assertEquals(FieldParsers.UNKNOWN, FieldParsers.parseCount("9223372036854775808"));
+        assertEquals(FieldParsers.UNKNOWN,
+                FieldParsers.parseMinDownloads("100,000,000,000,000,000,000+"));
+        assertTrue(Float.isNaN(FieldParsers.parseRating("99999999999999999999.5")));
+        assertEquals(FieldParsers.UNKNOWN, FieldParsers.parseDate("March 99999999999, 2017"));
+    }
+}
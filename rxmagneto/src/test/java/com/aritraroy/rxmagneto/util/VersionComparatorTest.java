@@ -0,0 +1,73 @@
+package com.aritraroy.rxmagneto.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class VersionComparatorTest {
+
+    @Test
+    public void comparesNumericPartsByValue() {
+        assertTrue(VersionComparator.isNewer("1.10", "1.9"));
+        assertTrue(VersionComparator.isNewer("2.0", "1.99.99"));
+        assertTrue(VersionComparator.isNewer("1.0.1", "1.0"));
+        assertFalse(VersionComparator.isNewer("1.9", "1.10"));
+    }
+
+    @Test
+    public void countsMissingPartsAsZero() {
+        assertEquals(0, VersionComparator.INSTANCE.compare("1.0", "1.0.0"));
+        assertEquals(0, VersionComparator.INSTANCE.compare("1", "1.0.0.0"));
+        assertEquals(0, VersionComparator.INSTANCE.compare("1.01", "1.1"));
+    }
+
+    @Test
+    public void ordersPreReleasesBeforeTheRelease() {
+        assertTrue(VersionComparator.isNewer("2.0", "2.0-beta"));
+        assertTrue(VersionComparator.isNewer("2.0-beta", "2.0-alpha"));
+        assertTrue(VersionComparator.isNewer("2.0-beta2", "2.0-beta1"));
+        assertTrue(VersionComparator.isNewer("2.0.1", "2.0"));
+        assertFalse(VersionComparator.isNewer("2.0-rc1", "2.0"));
+    }
+
+    @Test
+    public void comparesQualifiersCaseInsensitively() {
+        assertEquals(0, VersionComparator.INSTANCE.compare("2.0-BETA", "2.0-beta"));
+        assertEquals(0, VersionComparator.INSTANCE.compare("2.0-beta", "2.0.beta"));
+    }
+
+    @Test
+    public void ignoresBuildMetadata() {
+        assertEquals(0, VersionComparator.INSTANCE.compare("1.2.3+456", "1.2.3"));
+        assertEquals(0, VersionComparator.INSTANCE.compare("1.2.3+456", "1.2.3+789"));
+    }
+
+    @Test
+    public void comparesNumbersOfAnyLength() {
+        assertTrue(VersionComparator.isNewer("1.100000000000000000000", "1.99999999999999999999"));
+        assertTrue(VersionComparator.isNewer("20171001", "2017100"));
+    }
+
+    @Test
+    public void ordersANullVersionLikeAnEmptyOne() {
+        assertEquals(0, VersionComparator.INSTANCE.compare(null, ""));
+        assertEquals(0, VersionComparator.INSTANCE.compare(null, null));
+        assertTrue(VersionComparator.isNewer("1.0", null));
+        assertFalse(VersionComparator.isNewer(null, "1.0"));
+    }
+
+    @Test
+    public void isAntisymmetric() {
+        String[] versions = {"1", "1.0.1", "1.10", "1.9", "2.0-alpha", "2.0-beta", "2.0",
+                "2.0.1", "10"};
+        for (String first : versions) {
+            for (String second : versions) {
+                assertEquals(first + " vs " + second,
+                        -Integer.signum(VersionComparator.INSTANCE.compare(second, first)),
+                        Integer.signum(VersionComparator.INSTANCE.compare(first, second)));
+            }
+        }
+    }
+}